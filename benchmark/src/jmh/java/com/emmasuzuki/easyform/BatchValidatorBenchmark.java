@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Cost of validating a batch of imported records, on the calling thread only and fanned out over
+ * all cores.
+ */
+@State(Scope.Benchmark)
+public class BatchValidatorBenchmark {
+
+    private static final Executor CALLING_THREAD = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Param({"1000", "50000"})
+    int rowCount;
+
+    BatchValidator batchValidator;
+    List<Map<String, CharSequence>> rows;
+
+    @Setup
+    public void setUp() {
+        Map<String, ValidatorSpec> specs = new LinkedHashMap<>();
+        specs.put("email", new ValidatorSpec.Builder().setRegexPattern("[a-z0-9._%+-]+@[a-z0-9.-]+\\.[a-z]{2,}").build());
+        specs.put("name", new ValidatorSpec.Builder().setMinChars(2).setMaxChars(40).build());
+        specs.put("age", new ValidatorSpec.Builder().setMinValue(18).setMaxValue(120)
+                .setValuePrecision(ValuePrecision.INTEGER).build());
+        batchValidator = new BatchValidator(specs);
+
+        rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            Map<String, CharSequence> row = new HashMap<>();
+            row.put("email", "user" + i + (i % 10 == 0 ? "@invalid" : "@example.com"));
+            row.put("name", "Name " + i);
+            row.put("age", Integer.toString(10 + i % 100));
+            rows.add(row);
+        }
+    }
+
+    // Helpers run inline, so the calling thread does every chunk.
+    @Benchmark
+    public int sequential() {
+        return batchValidator.validate(rows, CALLING_THREAD).getInvalidRowCount();
+    }
+
+    @Benchmark
+    public int parallel() {
+        return batchValidator.validate(rows).getInvalidRowCount();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of as-you-type formatting. One operation types the whole number a digit at a time, the way
+ * an EditText drives the watcher, or pastes it in one edit.
+ */
+@State(Scope.Thread)
+public class EasyFormTextWatcherBenchmark {
+
+    @Param({"CREDIT_CARD", "PHONE_NUMBER"})
+    EasyFormType formType;
+
+    private final BenchmarkEditable editable = new BenchmarkEditable();
+    private EasyFormTextWatcher watcher;
+    private String digits;
+    private int cursorPos;
+
+    @Setup
+    public void setUp() {
+        watcher = new EasyFormTextWatcher(formType);
+        watcher.setPhoneRegion("US");
+        watcher.setListener(new FormatListener() {
+
+            @Override
+            public void formatted(int cursorPos) {
+                EasyFormTextWatcherBenchmark.this.cursorPos = cursorPos;
+            }
+        });
+        digits = formType == EasyFormType.CREDIT_CARD ? "4111111111111111" : "4155552671";
+    }
+
+    @Benchmark
+    public int typeDigits() {
+        editable.clear();
+
+        for (int i = 0; i < digits.length(); i++) {
+            int start = editable.length();
+            watcher.beforeTextChanged(editable, start, 0, 1);
+            editable.append(digits.charAt(i));
+            watcher.onTextChanged(editable, start, 0, 1);
+            watcher.afterTextChanged(editable);
+        }
+
+        return cursorPos;
+    }
+
+    @Benchmark
+    public int paste() {
+        editable.clear();
+
+        watcher.beforeTextChanged(editable, 0, 0, digits.length());
+        editable.append(digits);
+        watcher.onTextChanged(editable, 0, 0, digits.length());
+        watcher.afterTextChanged(editable);
+
+        return cursorPos;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.emmasuzuki.easyform.FormValidator.INVALID_VALUE;
+
+/**
+ * Cost of a single FormValidator.isValid call per ErrorType, i.e. the work done on every keystroke
+ * with showErrorOn="change".
+ */
+public class FormValidatorBenchmark {
+
+    private static final String EMAIL_PATTERN = "[a-z0-9._%+-]+@[a-z0-9.-]+\\.[a-z]{2,}";
+
+    @State(Scope.Thread)
+    public static class TextState {
+
+        @Param({"4", "16", "64"})
+        int length;
+
+        FormValidator emptyValidator;
+        FormValidator patternValidator;
+        FormValidator charsValidator;
+        FormValidator typingValidator;
+        Matcher emailMatcher;
+        StringBuilder typed;
+        Rule.Scratch fieldScratch;
+        String text;
+        String email;
+
+        @Setup
+        public void setUp() {
+            emptyValidator = new FormValidator(ErrorType.EMPTY, null, INVALID_VALUE, INVALID_VALUE, INVALID_VALUE, INVALID_VALUE);
+            patternValidator = new FormValidator(null, EMAIL_PATTERN, INVALID_VALUE, INVALID_VALUE, INVALID_VALUE, INVALID_VALUE);
+            charsValidator = new FormValidator(null, null, INVALID_VALUE, INVALID_VALUE, 8, 50);
+
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                builder.append((char) ('a' + i % 26));
+            }
+            text = builder.toString();
+            email = text + "@example.com";
+
+            emailMatcher = Pattern.compile(EMAIL_PATTERN).matcher(email);
+            typingValidator = new FormValidator(null, EMAIL_PATTERN, INVALID_VALUE, INVALID_VALUE, INVALID_VALUE, INVALID_VALUE);
+            typed = new StringBuilder(email);
+            typingValidator.isValid(typed);
+            fieldScratch = new Rule.Scratch();
+            typingValidator.isValid(typed, fieldScratch);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ItemState {
+
+        @Param({"exact", "normalized"})
+        String matching;
+
+        FormValidator itemValidator;
+        String item;
+
+        @Setup
+        public void setUp() {
+            List<String> items = new ArrayList<>(100000);
+            for (int i = 0; i < 100000; i++) {
+                items.add("City " + i);
+            }
+            item = "City 54321";
+
+            ItemSet itemSet = new ItemSet(items, "exact".equals(matching) ? ItemMatching.EXACT : ItemMatching.NORMALIZED);
+            itemValidator = new ValidatorSpec.Builder().setErrorType(ErrorType.ITEM).setItemSet(itemSet).build().newValidator();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class NumberState {
+
+        @Param({"7", "1999.99", "-12345678.25", "1."})
+        String number;
+
+        FormValidator valueValidator;
+
+        @Setup
+        public void setUp() {
+            valueValidator = new FormValidator(null, null, -100000000f, 100000000f, INVALID_VALUE, INVALID_VALUE);
+        }
+    }
+
+    @Benchmark
+    public boolean empty(TextState state) {
+        return state.emptyValidator.isValid(state.text);
+    }
+
+    @Benchmark
+    public boolean pattern(TextState state) {
+        return state.patternValidator.isValid(state.email);
+    }
+
+    // java.util.regex over the whole text, which is what pattern used before RegexDfa.
+    @Benchmark
+    public boolean patternRegex(TextState state) {
+        return state.emailMatcher.reset(state.email).matches();
+    }
+
+    // One char typed at the end then removed; only the edited suffix is fed to the automaton.
+    @Benchmark
+    public boolean patternKeystroke(TextState state) {
+        StringBuilder typed = state.typed;
+        int length = typed.length();
+
+        typed.append('m');
+        boolean isValid = state.typingValidator.isValid(typed, length);
+        typed.setLength(length);
+
+        return isValid & state.typingValidator.isValid(typed, length);
+    }
+
+    // The first char replaced then restored; the automaton is back in step with the unchanged
+    // tail after a few chars, however long the text is.
+    @Benchmark
+    public boolean patternMidEdit(TextState state) {
+        StringBuilder typed = state.typed;
+        Rule.Scratch scratch = state.fieldScratch;
+        char first = typed.charAt(0);
+
+        typed.setCharAt(0, '_');
+        scratch.edited(0, typed.length() - 1);
+        boolean isValid = state.typingValidator.isValid(typed, scratch);
+        typed.setCharAt(0, first);
+        scratch.edited(0, typed.length() - 1);
+
+        return isValid & state.typingValidator.isValid(typed, scratch);
+    }
+
+    // One of 100k items; a hash lookup rather than List.contains.
+    @Benchmark
+    public boolean item(ItemState state) {
+        return state.itemValidator.isValid(state.item);
+    }
+
+    @Benchmark
+    public boolean chars(TextState state) {
+        return state.charsValidator.isValid(state.text);
+    }
+
+    @Benchmark
+    public boolean value(NumberState state) {
+        return state.valueValidator.isValid(state.number);
+    }
+}
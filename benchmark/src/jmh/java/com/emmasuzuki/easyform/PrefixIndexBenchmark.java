@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Cost of filtering a 40k-item suggestion list on one keystroke, through the index and by scanning
+ * every item the way ArrayAdapter's filter does.
+ */
+@State(Scope.Benchmark)
+public class PrefixIndexBenchmark {
+
+    private static final String[] SYLLABLES = {"san", "ta", "ber", "lin", "ro", "ma", "new", "port", "ville", "ka", "to", "mi"};
+
+    @Param({"s", "san", "santa ro"})
+    String prefix;
+
+    List<String> items;
+    PrefixIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        items = new ArrayList<>(40000);
+        for (int i = 0; i < 40000; i++) {
+            StringBuilder item = new StringBuilder();
+            int words = 1 + random.nextInt(3);
+            for (int word = 0; word < words; word++) {
+                if (word > 0) {
+                    item.append(' ');
+                }
+                item.append(Character.toUpperCase(SYLLABLES[random.nextInt(SYLLABLES.length)].charAt(0)))
+                        .append(SYLLABLES[random.nextInt(SYLLABLES.length)].substring(1))
+                        .append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            items.add(item.toString());
+        }
+
+        index = new PrefixIndex(items, true);
+    }
+
+    @Benchmark
+    public int index() {
+        return index.query(prefix).size();
+    }
+
+    // ArrayAdapter's filter: every item lowercased and split into words on each query.
+    @Benchmark
+    public int scan() {
+        String lowerPrefix = prefix.toLowerCase();
+        List<String> result = new ArrayList<>();
+
+        for (String item : items) {
+            String value = item.toLowerCase();
+            if (value.startsWith(lowerPrefix)) {
+                result.add(item);
+            } else {
+                for (String word : value.split(" ")) {
+                    if (word.startsWith(lowerPrefix)) {
+                        result.add(item);
+                        break;
+                    }
+                }
+            }
+        }
+
+        return result.size();
+    }
+}
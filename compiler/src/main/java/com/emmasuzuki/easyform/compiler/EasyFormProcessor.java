@@ -0,0 +1,296 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a {@code <Class>_EasyFormBinder} for every class with @FormField fields. The binder
+ * builds each field's ValidatorSpec once, in a static initializer, and at bind time only looks the
+ * views up, hands them their spec and registers them with the form; no attribute is parsed.
+ *
+ * The library is referenced by name only, so this processor has no dependency on it.
+ */
+public class EasyFormProcessor extends AbstractProcessor {
+
+    private static final String PACKAGE = "com.emmasuzuki.easyform";
+    private static final String FORM_FIELD = PACKAGE + ".FormField";
+    private static final String BINDER_SUFFIX = "_EasyFormBinder";
+    private static final String[] WIDGETS = {
+            PACKAGE + ".EasyFormEditText",
+            PACKAGE + ".EasyTextInputLayout",
+            PACKAGE + ".EasyAutoCompleteTextView"
+    };
+
+    private static final int INVALID_VALUE = -1;
+
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(FORM_FIELD);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement formField = elements.getTypeElement(FORM_FIELD);
+        if (formField == null) {
+            return false;
+        }
+
+        Map<TypeElement, List<VariableElement>> fieldsByClass = new LinkedHashMap<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(formField)) {
+            if (isValidField(element)) {
+                TypeElement enclosingClass = (TypeElement) element.getEnclosingElement();
+                List<VariableElement> fields = fieldsByClass.get(enclosingClass);
+                if (fields == null) {
+                    fields = new ArrayList<>();
+                    fieldsByClass.put(enclosingClass, fields);
+                }
+                fields.add((VariableElement) element);
+            }
+        }
+
+        for (Map.Entry<TypeElement, List<VariableElement>> entry : fieldsByClass.entrySet()) {
+            writeBinder(entry.getKey(), entry.getValue());
+        }
+
+        return true;
+    }
+
+    private boolean isValidField(Element element) {
+        if (element.getKind() != ElementKind.FIELD) {
+            error(element, "@FormField is only allowed on fields.");
+            return false;
+        }
+
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+            error(element, "@FormField fields must not be private or static.");
+            return false;
+        }
+
+        if (element.getEnclosingElement().getModifiers().contains(Modifier.PRIVATE)) {
+            error(element, "@FormField fields must not be in a private class.");
+            return false;
+        }
+
+        for (String widget : WIDGETS) {
+            TypeElement widgetType = elements.getTypeElement(widget);
+            if (widgetType != null && types.isAssignable(element.asType(), widgetType.asType())) {
+                return true;
+            }
+        }
+
+        error(element, "@FormField fields must be an EasyFormEditText, EasyTextInputLayout or EasyAutoCompleteTextView.");
+        return false;
+    }
+
+    private void writeBinder(TypeElement targetClass, List<VariableElement> fields) {
+        String packageName = elements.getPackageOf(targetClass).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(targetClass).toString();
+        // Nested classes keep their '$', so that the runtime finds the binder from getClass().getName().
+        String binderName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + BINDER_SUFFIX;
+        String targetName = types.erasure(targetClass.asType()).toString();
+
+        StringBuilder source = new StringBuilder();
+        source.append("// Generated by easyform-compiler. Do not modify!\n");
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import ").append(PACKAGE).append(".EasyForm;\n");
+        source.append("import ").append(PACKAGE).append(".ErrorType;\n");
+        source.append("import ").append(PACKAGE).append(".ValidatorSpec;\n");
+        source.append("import ").append(PACKAGE).append(".ValuePrecision;\n\n");
+        source.append("public final class ").append(binderName).append(" {\n");
+
+        for (VariableElement field : fields) {
+            source.append('\n');
+            appendSpec(source, field);
+        }
+
+        source.append("\n    private ").append(binderName).append("() {\n    }\n\n");
+        source.append("    public static void bind(").append(targetName).append(" target, EasyForm form) {\n");
+
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            int id = (Integer) getValues(field).get("value").getValue();
+
+            source.append("        target.").append(name).append(" = (").append(types.erasure(field.asType()))
+                    .append(") form.findViewById(").append(id).append(");\n");
+            source.append("        if (target.").append(name).append(" == null) {\n");
+            source.append("            throw new IllegalStateException(\"No view with id ")
+                    .append(String.format(Locale.US, "0x%08x", id)).append(" for field '").append(name)
+                    .append("' in the form\");\n");
+            source.append("        }\n");
+            source.append("        target.").append(name).append(".setValidatorSpec(").append(specName(field)).append(");\n");
+            source.append("        form.registerField(target.").append(name).append(");\n");
+        }
+
+        source.append("    }\n}\n");
+
+        String qualifiedBinderName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedBinderName, targetClass);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(source.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(targetClass, "Unable to write " + qualifiedBinderName + ": " + e.getMessage());
+        }
+    }
+
+    // Only attributes that differ from the defaults are set, like with XML.
+    private void appendSpec(StringBuilder source, VariableElement field) {
+        Map<String, AnnotationValue> values = getValues(field);
+
+        source.append("    private static final ValidatorSpec ").append(specName(field)).append(" = new ValidatorSpec.Builder()\n");
+
+        String errorType = values.get("errorType").getValue().toString();
+        if (!"NONE".equals(errorType)) {
+            source.append("            .setErrorType(ErrorType.").append(errorType).append(")\n");
+        }
+        appendString(source, "setRegexPattern", values.get("regexPattern"));
+        appendFloat(source, "setMinValue", values.get("minValue"));
+        appendFloat(source, "setMaxValue", values.get("maxValue"));
+
+        String valuePrecision = values.get("valuePrecision").getValue().toString();
+        if (!"DOUBLE".equals(valuePrecision)) {
+            source.append("            .setValuePrecision(ValuePrecision.").append(valuePrecision).append(")\n");
+        }
+
+        appendInt(source, "setMinChars", values.get("minChars"));
+        appendInt(source, "setMaxChars", values.get("maxChars"));
+        source.append("            .setErrorMessage(").append(elements.getConstantExpression(values.get("errorMessage").getValue()))
+                .append(")\n");
+        appendRuleMessage(source, "EMPTY", values.get("emptyErrorMessage"));
+        appendRuleMessage(source, "PATTERN", values.get("patternErrorMessage"));
+        appendRuleMessage(source, "VALUE", values.get("valueErrorMessage"));
+        appendRuleMessage(source, "CHARS", values.get("charsErrorMessage"));
+        appendRuleMessage(source, "CARD", values.get("cardErrorMessage"));
+        appendRuleMessage(source, "ITEM", values.get("itemErrorMessage"));
+        source.append("            .build();\n");
+    }
+
+    private void appendString(StringBuilder source, String setter, AnnotationValue value) {
+        String string = (String) value.getValue();
+        if (!string.isEmpty()) {
+            source.append("            .").append(setter).append('(').append(elements.getConstantExpression(string)).append(")\n");
+        }
+    }
+
+    private void appendFloat(StringBuilder source, String setter, AnnotationValue value) {
+        float number = (Float) value.getValue();
+        if (number != INVALID_VALUE) {
+            source.append("            .").append(setter).append('(').append(elements.getConstantExpression(number)).append(")\n");
+        }
+    }
+
+    private void appendInt(StringBuilder source, String setter, AnnotationValue value) {
+        int number = (Integer) value.getValue();
+        if (number != INVALID_VALUE) {
+            source.append("            .").append(setter).append('(').append(number).append(")\n");
+        }
+    }
+
+    private void appendRuleMessage(StringBuilder source, String errorType, AnnotationValue value) {
+        String message = (String) value.getValue();
+        if (!message.isEmpty()) {
+            source.append("            .setErrorMessage(ErrorType.").append(errorType).append(", ")
+                    .append(elements.getConstantExpression(message)).append(")\n");
+        }
+    }
+
+    private Map<String, AnnotationValue> getValues(Element field) {
+        Map<String, AnnotationValue> values = new LinkedHashMap<>();
+
+        for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            TypeMirror annotationType = mirror.getAnnotationType();
+            if (FORM_FIELD.equals(annotationType.toString())) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                        : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+                    values.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+                }
+            }
+        }
+
+        return values;
+    }
+
+    // firstName -> FIRST_NAME_SPEC
+    private static String specName(VariableElement field) {
+        String name = field.getSimpleName().toString();
+        StringBuilder specName = new StringBuilder();
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0 && !Character.isUpperCase(name.charAt(i - 1))) {
+                specName.append('_');
+            }
+            specName.append(Character.toUpperCase(c));
+        }
+
+        return specName.append("_SPEC").toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
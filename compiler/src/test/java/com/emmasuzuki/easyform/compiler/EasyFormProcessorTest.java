@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform.compiler;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+public class EasyFormProcessorTest {
+
+    // The processor only knows the library by name, so these stand in for it.
+    private static final JavaFileObject[] LIBRARY = {
+            JavaFileObjects.forSourceLines("com.emmasuzuki.easyform.FormField",
+                    "package com.emmasuzuki.easyform;",
+                    "public @interface FormField {",
+                    "    int value();",
+                    "    ErrorType errorType() default ErrorType.NONE;",
+                    "    String regexPattern() default \"\";",
+                    "    float minValue() default -1;",
+                    "    float maxValue() default -1;",
+                    "    ValuePrecision valuePrecision() default ValuePrecision.DOUBLE;",
+                    "    int minChars() default -1;",
+                    "    int maxChars() default -1;",
+                    "    String errorMessage() default \"Error\";",
+                    "    String emptyErrorMessage() default \"\";",
+                    "    String patternErrorMessage() default \"\";",
+                    "    String valueErrorMessage() default \"\";",
+                    "    String charsErrorMessage() default \"\";",
+                    "    String cardErrorMessage() default \"\";",
+                    "    String itemErrorMessage() default \"\";",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.emmasuzuki.easyform.ErrorType",
+                    "package com.emmasuzuki.easyform;",
+                    "public enum ErrorType { NONE, EMPTY, PATTERN, VALUE, CHARS, CARD, ITEM }"),
+            JavaFileObjects.forSourceLines("com.emmasuzuki.easyform.ValuePrecision",
+                    "package com.emmasuzuki.easyform;",
+                    "public enum ValuePrecision { INT, LONG, DOUBLE, DECIMAL }"),
+            JavaFileObjects.forSourceLines("com.emmasuzuki.easyform.ValidatorSpec",
+                    "package com.emmasuzuki.easyform;",
+                    "public final class ValidatorSpec {",
+                    "    public static class Builder {",
+                    "        public Builder setErrorType(ErrorType errorType) { return this; }",
+                    "        public Builder setRegexPattern(String regexPattern) { return this; }",
+                    "        public Builder setMinValue(float minValue) { return this; }",
+                    "        public Builder setMaxValue(float maxValue) { return this; }",
+                    "        public Builder setValuePrecision(ValuePrecision valuePrecision) { return this; }",
+                    "        public Builder setMinChars(int minChars) { return this; }",
+                    "        public Builder setMaxChars(int maxChars) { return this; }",
+                    "        public Builder setErrorMessage(String errorMessage) { return this; }",
+                    "        public Builder setErrorMessage(ErrorType errorType, String errorMessage) { return this; }",
+                    "        public ValidatorSpec build() { return new ValidatorSpec(); }",
+                    "    }",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.emmasuzuki.easyform.EasyForm",
+                    "package com.emmasuzuki.easyform;",
+                    "public class EasyForm {",
+                    "    public Object findViewById(int id) { return null; }",
+                    "    public void registerField(Object field) {}",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.emmasuzuki.easyform.EasyFormEditText",
+                    "package com.emmasuzuki.easyform;",
+                    "public class EasyFormEditText {",
+                    "    public void setValidatorSpec(ValidatorSpec spec) {}",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.emmasuzuki.easyform.EasyTextInputLayout",
+                    "package com.emmasuzuki.easyform;",
+                    "public class EasyTextInputLayout {",
+                    "    public void setValidatorSpec(ValidatorSpec spec) {}",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.emmasuzuki.easyform.EasyAutoCompleteTextView",
+                    "package com.emmasuzuki.easyform;",
+                    "public class EasyAutoCompleteTextView {",
+                    "    public void setValidatorSpec(ValidatorSpec spec) {}",
+                    "}")
+    };
+
+    @Test
+    public void testProcess_GeneratesBinder() {
+        Compilation compilation = compile(JavaFileObjects.forSourceLines("test.SignUpActivity",
+                "package test;",
+                "import com.emmasuzuki.easyform.EasyAutoCompleteTextView;",
+                "import com.emmasuzuki.easyform.EasyFormEditText;",
+                "import com.emmasuzuki.easyform.ErrorType;",
+                "import com.emmasuzuki.easyform.FormField;",
+                "import com.emmasuzuki.easyform.ValuePrecision;",
+                "public class SignUpActivity {",
+                "    @FormField(value = 1, errorType = ErrorType.PATTERN, regexPattern = \"\\\\d+\",",
+                "            patternErrorMessage = \"Digits only\")",
+                "    EasyFormEditText zipCode;",
+                "    @FormField(value = 2, errorType = ErrorType.VALUE, minValue = 0.5f,",
+                "            valuePrecision = ValuePrecision.INT, errorMessage = \"Bad\")",
+                "    EasyAutoCompleteTextView count;",
+                "}"));
+
+        assertThat(compilation).succeeded();
+        assertThat(compilation).generatedSourceFile("test.SignUpActivity_EasyFormBinder").hasSourceEquivalentTo(
+                JavaFileObjects.forSourceLines("test.SignUpActivity_EasyFormBinder",
+                        "package test;",
+                        "import com.emmasuzuki.easyform.EasyForm;",
+                        "import com.emmasuzuki.easyform.ErrorType;",
+                        "import com.emmasuzuki.easyform.ValidatorSpec;",
+                        "import com.emmasuzuki.easyform.ValuePrecision;",
+                        "public final class SignUpActivity_EasyFormBinder {",
+                        "    private static final ValidatorSpec ZIP_CODE_SPEC = new ValidatorSpec.Builder()",
+                        "            .setErrorType(ErrorType.PATTERN)",
+                        "            .setRegexPattern(\"\\\\d+\")",
+                        "            .setErrorMessage(\"Error\")",
+                        "            .setErrorMessage(ErrorType.PATTERN, \"Digits only\")",
+                        "            .build();",
+                        "    private static final ValidatorSpec COUNT_SPEC = new ValidatorSpec.Builder()",
+                        "            .setErrorType(ErrorType.VALUE)",
+                        "            .setMinValue(0.5f)",
+                        "            .setValuePrecision(ValuePrecision.INT)",
+                        "            .setErrorMessage(\"Bad\")",
+                        "            .build();",
+                        "    private SignUpActivity_EasyFormBinder() {",
+                        "    }",
+                        "    public static void bind(test.SignUpActivity target, EasyForm form) {",
+                        "        target.zipCode = (com.emmasuzuki.easyform.EasyFormEditText) form.findViewById(1);",
+                        "        if (target.zipCode == null) {",
+                        "            throw new IllegalStateException(\"No view with id 0x00000001 for field 'zipCode' in the form\");",
+                        "        }",
+                        "        target.zipCode.setValidatorSpec(ZIP_CODE_SPEC);",
+                        "        form.registerField(target.zipCode);",
+                        "        target.count = (com.emmasuzuki.easyform.EasyAutoCompleteTextView) form.findViewById(2);",
+                        "        if (target.count == null) {",
+                        "            throw new IllegalStateException(\"No view with id 0x00000002 for field 'count' in the form\");",
+                        "        }",
+                        "        target.count.setValidatorSpec(COUNT_SPEC);",
+                        "        form.registerField(target.count);",
+                        "    }",
+                        "}"));
+    }
+
+    @Test
+    public void testProcess_NestedClassKeepsBinaryName() {
+        Compilation compilation = compile(JavaFileObjects.forSourceLines("test.Outer",
+                "package test;",
+                "import com.emmasuzuki.easyform.EasyTextInputLayout;",
+                "import com.emmasuzuki.easyform.FormField;",
+                "public class Outer {",
+                "    static class Form {",
+                "        @FormField(1) EasyTextInputLayout name;",
+                "    }",
+                "}"));
+
+        assertThat(compilation).succeeded();
+        assertThat(compilation).generatedSourceFile("test.Outer$Form_EasyFormBinder").contentsAsUtf8String()
+                .contains("public static void bind(test.Outer.Form target, EasyForm form)");
+    }
+
+    @Test
+    public void testProcess_PrivateField() {
+        Compilation compilation = compile(field("private EasyFormEditText name;"));
+
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("@FormField fields must not be private or static.");
+    }
+
+    @Test
+    public void testProcess_StaticField() {
+        Compilation compilation = compile(field("static EasyFormEditText name;"));
+
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("@FormField fields must not be private or static.");
+    }
+
+    @Test
+    public void testProcess_WrongType() {
+        Compilation compilation = compile(field("String name;"));
+
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining(
+                "@FormField fields must be an EasyFormEditText, EasyTextInputLayout or EasyAutoCompleteTextView.");
+    }
+
+    @Test
+    public void testProcess_PrivateNestedClass() {
+        Compilation compilation = compile(JavaFileObjects.forSourceLines("test.Outer",
+                "package test;",
+                "import com.emmasuzuki.easyform.EasyFormEditText;",
+                "import com.emmasuzuki.easyform.FormField;",
+                "public class Outer {",
+                "    private static class Form {",
+                "        @FormField(1) EasyFormEditText name;",
+                "    }",
+                "}"));
+
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("@FormField fields must not be in a private class.");
+    }
+
+    private static JavaFileObject field(String declaration) {
+        return JavaFileObjects.forSourceLines("test.Form",
+                "package test;",
+                "import com.emmasuzuki.easyform.EasyFormEditText;",
+                "import com.emmasuzuki.easyform.FormField;",
+                "public class Form {",
+                "    @FormField(1) " + declaration,
+                "}");
+    }
+
+    private static Compilation compile(JavaFileObject source) {
+        List<JavaFileObject> sources = new ArrayList<>(Arrays.asList(LIBRARY));
+        sources.add(source);
+
+        return javac().withProcessors(new EasyFormProcessor()).compile(sources);
+    }
+}
@@ -0,0 +1,2 @@
+# Binders generated by easyform-compiler are looked up by name from EasyFormBinder.bind.
+-keep class **_EasyFormBinder { public static void bind(...); }
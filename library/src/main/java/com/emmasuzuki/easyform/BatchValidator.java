@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Validates many records against the same field rules without any view, e.g. queued offline
+ * submissions or imported rows. Rows are split into chunks that the calling thread and a pool of
+ * workers take in turn, so a slow chunk does not hold up the others.
+ *
+ * The rule chains are built once and shared by all workers; each worker only owns a scratch
+ * buffer, so validating a row allocates nothing. A BatchValidator may be used from several threads.
+ */
+public final class BatchValidator {
+
+    static final int CHUNK_SIZE = 256;
+
+    private final String[] fields;
+    private final Rule[][] chains;
+
+    // Field order is the iteration order of the map, and is the bit order of the result.
+    public BatchValidator(Map<String, ValidatorSpec> specs) {
+        fields = new String[specs.size()];
+        chains = new Rule[specs.size()][];
+
+        int index = 0;
+        for (Map.Entry<String, ValidatorSpec> entry : specs.entrySet()) {
+            fields[index] = entry.getKey();
+            chains[index] = entry.getValue() != null ? entry.getValue().newValidator().getRules() : new Rule[0];
+            index++;
+        }
+    }
+
+    public Result validate(List<? extends Map<String, ? extends CharSequence>> rows) {
+        return validate(rows, DefaultExecutor.INSTANCE);
+    }
+
+    // A missing or null value is validated as an empty text. The calling thread takes part and
+    // blocks until every row is done.
+    public Result validate(List<? extends Map<String, ? extends CharSequence>> rows, Executor executor) {
+        final Object[] records = rows.toArray();
+        final Result result = new Result(fields, records.length);
+        final int chunkCount = (records.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(chunkCount);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                Rule.Scratch scratch = new Rule.Scratch();
+
+                for (int chunk = nextChunk.getAndIncrement(); chunk < chunkCount; chunk = nextChunk.getAndIncrement()) {
+                    try {
+                        int start = chunk * CHUNK_SIZE;
+                        validateRows(records, start, Math.min(start + CHUNK_SIZE, records.length), result, scratch);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }
+        };
+
+        int helpers = Math.min(Runtime.getRuntime().availableProcessors(), chunkCount) - 1;
+        try {
+            for (int i = 0; i < helpers; i++) {
+                executor.execute(worker);
+            }
+        } catch (RejectedExecutionException e) {
+            // The calling thread picks up the chunks no worker takes.
+        }
+
+        worker.run();
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch validation", e);
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void validateRows(Object[] records, int start, int end, Result result, Rule.Scratch scratch) {
+        int invalidRows = 0;
+
+        for (int row = start; row < end; row++) {
+            Map<String, ? extends CharSequence> record = (Map<String, ? extends CharSequence>) records[row];
+            int offset = row * result.wordsPerRow;
+            boolean isValid = true;
+
+            for (int field = 0; field < fields.length; field++) {
+                CharSequence value = record != null ? record.get(fields[field]) : null;
+                if (value == null) {
+                    value = "";
+                }
+
+                Rule[] chain = chains[field];
+                for (Rule rule : chain) {
+                    // Every value is new text, so pattern and card rules start from the first char.
+                    scratch.edited(0, 0);
+                    if (!rule.isValid(value, scratch)) {
+                        result.errors[offset + (field >>> 6)] |= 1L << field;
+                        isValid = false;
+                        break;
+                    }
+                }
+            }
+
+            if (!isValid) {
+                invalidRows++;
+            }
+        }
+
+        result.invalidRowCount.addAndGet(invalidRows);
+    }
+
+    /**
+     * Outcome of a batch: one bit per field and row, set when the field failed a rule.
+     */
+    public static final class Result {
+
+        private final String[] fields;
+        private final int rowCount;
+        final int wordsPerRow;
+        final long[] errors;
+        final AtomicInteger invalidRowCount = new AtomicInteger();
+
+        Result(String[] fields, int rowCount) {
+            this.fields = fields;
+            this.rowCount = rowCount;
+            this.wordsPerRow = Math.max(1, (fields.length + 63) >>> 6);
+            this.errors = new long[rowCount * wordsPerRow];
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public int getInvalidRowCount() {
+            return invalidRowCount.get();
+        }
+
+        public boolean isValid(int row) {
+            int offset = row * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                if (errors[offset + i] != 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        public boolean hasError(int row, String field) {
+            int index = indexOf(field);
+            return index >= 0 && (errors[row * wordsPerRow + (index >>> 6)] & (1L << index)) != 0;
+        }
+
+        public List<String> getErrorFields(int row) {
+            List<String> errorFields = new ArrayList<>();
+            for (int index = 0; index < fields.length; index++) {
+                if ((errors[row * wordsPerRow + (index >>> 6)] & (1L << index)) != 0) {
+                    errorFields.add(fields[index]);
+                }
+            }
+
+            return errorFields;
+        }
+
+        // Bits of the row's failed fields, in field order, as 64-bit words.
+        public long[] getErrorBits(int row) {
+            long[] bits = new long[wordsPerRow];
+            System.arraycopy(errors, row * wordsPerRow, bits, 0, wordsPerRow);
+            return bits;
+        }
+
+        private int indexOf(String field) {
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].equals(field)) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+
+    // One thread per core, idle threads time out so a finished import leaves nothing running.
+    private static final class DefaultExecutor {
+
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "EasyForm batch #" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
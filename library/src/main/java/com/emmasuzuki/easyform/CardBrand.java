@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.util.Arrays;
+
+/**
+ * Card networks told apart by the issuer prefix (IIN) of a card number, each with its grouping and
+ * valid lengths. Prefix ranges are compiled once into a digit trie, so detecting the brand of a
+ * number walks at most its first six digits.
+ */
+public enum CardBrand {
+
+    VISA("#### #### #### #### ###", 13, 16, 19),
+    MASTERCARD("#### #### #### ####", 16),
+    AMERICAN_EXPRESS("#### ###### #####", 15),
+    DISCOVER("#### #### #### #### ###", 16, 17, 18, 19),
+    DINERS_CLUB("#### ###### ####", 14),
+    JCB("#### #### #### #### ###", 16, 17, 18, 19),
+    UNIONPAY("#### #### #### #### ###", 16, 17, 18, 19),
+    MAESTRO("#### #### #### #### ###", 12, 13, 14, 15, 16, 17, 18, 19),
+    // Issuers missing from the table are only held to the ISO/IEC 7812 lengths.
+    UNKNOWN("#### #### #### #### ###", 12, 13, 14, 15, 16, 17, 18, 19);
+
+    private static final int RADIX = 10;
+    private static final int MAX_PREFIX_LENGTH = 6;
+
+    // Trie over leading digits: children of node n are next[n * RADIX + digit], 0 being none as the
+    // root is never a child. A node's brand applies to every number under it unless a deeper node
+    // has its own.
+    private static int[] next = new int[32 * RADIX];
+    private static CardBrand[] brands = new CardBrand[32];
+    private static int nodeCount = 1;
+
+    static {
+        addRange("4", "4", VISA);
+        addRange("51", "55", MASTERCARD);
+        addRange("2221", "2720", MASTERCARD);
+        addRange("34", "34", AMERICAN_EXPRESS);
+        addRange("37", "37", AMERICAN_EXPRESS);
+        addRange("6011", "6011", DISCOVER);
+        addRange("644", "649", DISCOVER);
+        addRange("65", "65", DISCOVER);
+        addRange("622126", "622925", DISCOVER);
+        addRange("300", "305", DINERS_CLUB);
+        addRange("36", "36", DINERS_CLUB);
+        addRange("3528", "3589", JCB);
+        addRange("62", "62", UNIONPAY);
+        for (String prefix : new String[]{"5018", "5020", "5038", "5893", "6304", "6759", "6761", "6762", "6763"}) {
+            addRange(prefix, prefix, MAESTRO);
+        }
+
+        next = Arrays.copyOf(next, nodeCount * RADIX);
+        brands = Arrays.copyOf(brands, nodeCount);
+    }
+
+    final FormatTemplate template;
+    // Bit n is set when n digits is a valid length.
+    final int lengths;
+    final int maxLength;
+
+    CardBrand(String pattern, int... lengths) {
+        this.template = new FormatTemplate(pattern);
+
+        int bits = 0;
+        for (int length : lengths) {
+            bits |= 1 << length;
+        }
+        this.lengths = bits;
+        this.maxLength = lengths[lengths.length - 1];
+    }
+
+    // Brand of a number typed so far, UNKNOWN until enough digits are typed. Separators are skipped.
+    public static CardBrand detect(CharSequence number) {
+        CardBrand brand = UNKNOWN;
+        int node = 0;
+        int digits = 0;
+
+        for (int i = 0; i < number.length() && digits < MAX_PREFIX_LENGTH; i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                continue;
+            }
+
+            node = next[node * RADIX + c - '0'];
+            if (node == 0) {
+                break;
+            }
+
+            digits++;
+            if (brands[node] != null) {
+                brand = brands[node];
+            }
+        }
+
+        return brand;
+    }
+
+    boolean isValidLength(int digits) {
+        return digits < 32 && (lengths & (1 << digits)) != 0;
+    }
+
+    // Covers the range of equal-length prefixes with as few trie nodes as possible, e.g. 2221-2720
+    // becomes 2221-2229, 223-229, 23-26, 270-271 and 2720.
+    private static void addRange(String low, String high, CardBrand brand) {
+        int common = 0;
+        while (common < low.length() && low.charAt(common) == high.charAt(common)) {
+            common++;
+        }
+
+        if (isFilled(low, common, '0') && isFilled(high, common, '9')) {
+            add(low.substring(0, common), brand);
+            return;
+        }
+
+        String prefix = low.substring(0, common);
+        char lowDigit = low.charAt(common);
+        char highDigit = high.charAt(common);
+        int tail = low.length() - common - 1;
+
+        addRange(low, prefix + lowDigit + repeat('9', tail), brand);
+        for (char digit = (char) (lowDigit + 1); digit < highDigit; digit++) {
+            add(prefix + digit, brand);
+        }
+        addRange(prefix + highDigit + repeat('0', tail), high, brand);
+    }
+
+    private static void add(String prefix, CardBrand brand) {
+        int node = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            int index = node * RADIX + prefix.charAt(i) - '0';
+            if (next[index] == 0) {
+                if (nodeCount == brands.length) {
+                    next = Arrays.copyOf(next, nodeCount * 2 * RADIX);
+                    brands = Arrays.copyOf(brands, nodeCount * 2);
+                }
+                next[index] = nodeCount++;
+            }
+            node = next[index];
+        }
+
+        brands[node] = brand;
+    }
+
+    private static boolean isFilled(String s, int from, char c) {
+        for (int i = from; i < s.length(); i++) {
+            if (s.charAt(i) != c) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
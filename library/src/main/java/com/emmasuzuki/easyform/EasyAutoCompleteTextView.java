@@ -18,28 +18,39 @@ package com.emmasuzuki.easyform;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.os.AsyncTask;
 import android.support.v7.widget.AppCompatAutoCompleteTextView;
 import android.util.AttributeSet;
 import android.view.View;
-import android.widget.ArrayAdapter;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static com.emmasuzuki.easyform.FormValidator.INVALID_VALUE;
 
 public class EasyAutoCompleteTextView extends AppCompatAutoCompleteTextView implements View.OnFocusChangeListener {
 
-    private FormValidator validator;
+    private ValidatorSpec spec;
+    private FieldState fieldState;
     private EasyFormErrorTextListener easyFormErrorTextListener;
 
     private List<String> items;
-    private String errorMessage;
+    private boolean matchWordStarts = true;
+    private ItemMatching itemMatching = ItemMatching.EXACT;
+    // Built from items the first time the item errorType needs it.
+    private ItemSet itemSet;
+    private int debounceMillis = INVALID_VALUE;
 
     private EasyFormErrorTextWatcher textWatcher = new EasyFormErrorTextWatcher(this) {
 
         @Override
-        protected void renderError() {
+        protected CharSequence getFieldText() {
+            return EasyAutoCompleteTextView.this.getText();
+        }
+
+        @Override
+        protected void renderError(String errorMessage) {
             setError(errorMessage);
         }
 
@@ -51,6 +62,8 @@ public class EasyAutoCompleteTextView extends AppCompatAutoCompleteTextView impl
 
     public EasyAutoCompleteTextView(Context context) {
         super(context);
+
+        setValidatorSpec(ValidatorSpec.NO_RULES);
     }
 
     public EasyAutoCompleteTextView(Context context, AttributeSet attrs) {
@@ -74,7 +87,7 @@ public class EasyAutoCompleteTextView extends AppCompatAutoCompleteTextView impl
         super.onFinishInflate();
 
         if (items != null) {
-            setItems(items);
+            setItemsAdapter();
         }
     }
 
@@ -85,50 +98,113 @@ public class EasyAutoCompleteTextView extends AppCompatAutoCompleteTextView impl
         }
     }
 
+    // Replaces the rules, e.g. with pre-resolved ones from a generated EasyFormBinder. Fields with
+    // equal specs share one spec and validator. Setters below derive a new spec from the current one.
+    public void setValidatorSpec(ValidatorSpec spec) {
+        // A spec of the item errorType without its own items checks this field's items.
+        if (spec.errorType == ErrorType.ITEM && spec.itemSet == null && items != null) {
+            spec = new ValidatorSpec.Builder(spec).setItemSet(getItemSet()).build();
+        }
+
+        this.spec = spec;
+
+        if (fieldState == null) {
+            fieldState = new FieldState(getId(), spec, spec.sharedValidator(), spec.getErrorMessage());
+            textWatcher.setFieldState(fieldState);
+        } else {
+            fieldState.setSpec(spec, spec.sharedValidator());
+        }
+    }
+
+    public ValidatorSpec getValidatorSpec() {
+        return spec;
+    }
+
     public ErrorType getErrorType() {
-        return validator.getErrorType();
+        return fieldState.validator.getErrorType();
     }
 
     public void setErrorType(ErrorType errorType) {
-        validator.setErrorType(errorType);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setOnlyErrorType(errorType).build());
     }
 
     public void setRegexPattern(String regexPattern) {
-        validator.setRegexPattern(regexPattern);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setRegexPattern(regexPattern).build());
     }
 
     public void setMinChars(int minChars) {
-        validator.setMinChars(minChars);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setMinChars(minChars).build());
     }
 
     public void setMaxChars(int maxChars) {
-        validator.setMaxChars(maxChars);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setMaxChars(maxChars).build());
     }
 
     public void setErrorMessage(String errorMessage) {
-        this.errorMessage = errorMessage;
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setErrorMessage(errorMessage).build());
+    }
+
+    public void setErrorMessage(ErrorType errorType, String errorMessage) {
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setErrorMessage(errorType, errorMessage).build());
+    }
+
+    public void setHideErrorWhileIncomplete(boolean hideErrorWhileIncomplete) {
+        textWatcher.setHideErrorWhileIncomplete(hideErrorWhileIncomplete);
+    }
+
+    public void setAsyncValidator(AsyncValidator asyncValidator, String errorMessage) {
+        textWatcher.setAsyncValidator(asyncValidator, errorMessage);
+    }
+
+    public void setAsyncValidatorExecutor(Executor executor) {
+        textWatcher.setAsyncExecutor(executor);
+    }
+
+    public boolean isValidationPending() {
+        return textWatcher.isPending();
     }
 
     public void setItems(String[] items) {
-        this.items = Arrays.asList(items);
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(getContext(), android.R.layout.simple_dropdown_item_1line, items);
-        setAdapter(adapter);
+        setItems(Arrays.asList(items));
     }
 
+    // The items are indexed on a background thread; suggestions typed before that are shown once it is done.
     public void setItems(List<String> items) {
         this.items = items;
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(getContext(), android.R.layout.simple_dropdown_item_1line, items);
-        setAdapter(adapter);
+        setItemsAdapter();
+        updateItemSet();
     }
 
-    void setShowErrorOn(ShowErrorOn showErrorOn) {
-        if (validator.getErrorType() != ErrorType.NONE) {
-            if (showErrorOn == ShowErrorOn.CHANGE) {
-                addTextChangedListener(textWatcher);
-                setOnFocusChangeListener(null);
-            } else {
+    // Also suggest items with a word starting with the text, e.g. "York" for "New York".
+    public void setMatchWordStarts(boolean matchWordStarts) {
+        if (this.matchWordStarts == matchWordStarts) {
+            return;
+        }
+        this.matchWordStarts = matchWordStarts;
+
+        // Items already given were indexed for the previous value. An app's own adapter is kept.
+        if (items != null && getAdapter() instanceof IndexedItemAdapter) {
+            setItemsAdapter();
+        }
+    }
+
+    // How the text is compared with items for the item errorType.
+    public void setItemMatching(ItemMatching itemMatching) {
+        this.itemMatching = itemMatching;
+        updateItemSet();
+    }
+
+    void setShowErrorOn(ShowErrorOn showErrorOn, int formDebounceMillis) {
+        if (getErrorType() != ErrorType.NONE) {
+            if (showErrorOn == ShowErrorOn.UNFOCUS) {
                 removeTextChangedListener(textWatcher);
                 setOnFocusChangeListener(this);
+            } else {
+                textWatcher.setDebounceMillis(getDebounceMillis(showErrorOn, formDebounceMillis));
+                textWatcher.resetChanges();
+                removeTextChangedListener(textWatcher);
+                addTextChangedListener(textWatcher);
+                setOnFocusChangeListener(textWatcher.validatesOnUnfocus() ? this : null);
             }
         }
     }
@@ -138,15 +214,49 @@ public class EasyAutoCompleteTextView extends AppCompatAutoCompleteTextView impl
         textWatcher.setEasyFormErrorTextListener(easyFormEditTextListener);
     }
 
+    FieldState getFieldState() {
+        return fieldState;
+    }
+
     void validate() {
-        boolean isValid = validator.isValid(getText().toString());
-        setError(isValid ? null : errorMessage);
+        textWatcher.validate(getText());
+    }
 
-        if (isValid) {
-            easyFormErrorTextListener.onFilled(this);
-        } else {
-            easyFormErrorTextListener.onError(this);
+    // Shows the message, or clears the error when null, without running this field's own rules.
+    void renderError(String errorMessage) {
+        textWatcher.showErrorNow(errorMessage);
+    }
+
+    boolean isErrorShown() {
+        return textWatcher.isErrorShown();
+    }
+
+    private void setItemsAdapter() {
+        setAdapter(new IndexedItemAdapter(getContext(), items, matchWordStarts, AsyncTask.THREAD_POOL_EXECUTOR));
+    }
+
+    private ItemSet getItemSet() {
+        if (itemSet == null) {
+            itemSet = new ItemSet(items, itemMatching);
         }
+
+        return itemSet;
+    }
+
+    private void updateItemSet() {
+        itemSet = null;
+
+        if (spec != null && spec.errorType == ErrorType.ITEM && items != null) {
+            setValidatorSpec(new ValidatorSpec.Builder(spec).setItemSet(getItemSet()).build());
+        }
+    }
+
+    private int getDebounceMillis(ShowErrorOn showErrorOn, int formDebounceMillis) {
+        if (debounceMillis != INVALID_VALUE) {
+            return debounceMillis;
+        }
+
+        return showErrorOn == ShowErrorOn.DEBOUNCED ? formDebounceMillis : 0;
     }
 
     private void setPropertyFromAttributes(AttributeSet attrs) {
@@ -155,10 +265,14 @@ public class EasyAutoCompleteTextView extends AppCompatAutoCompleteTextView impl
         if (typedArray != null) {
             int type = typedArray.getInt(R.styleable.EasyAutoCompleteTextView_errorType, -1);
             ErrorType errorType = ErrorType.valueOf(type);
-            errorMessage = typedArray.getString(R.styleable.EasyAutoCompleteTextView_errorMessage);
+            String errorMessage = typedArray.getString(R.styleable.EasyAutoCompleteTextView_errorMessage);
             String regexPattern = typedArray.getString(R.styleable.EasyAutoCompleteTextView_regexPattern);
             int minChars = typedArray.getInt(R.styleable.EasyAutoCompleteTextView_minChars, INVALID_VALUE);
             int maxChars = typedArray.getInt(R.styleable.EasyAutoCompleteTextView_maxChars, INVALID_VALUE);
+            debounceMillis = typedArray.getInt(R.styleable.EasyAutoCompleteTextView_debounceMillis, INVALID_VALUE);
+            textWatcher.setHideErrorWhileIncomplete(typedArray.getBoolean(R.styleable.EasyAutoCompleteTextView_hideErrorWhileIncomplete, false));
+            matchWordStarts = typedArray.getBoolean(R.styleable.EasyAutoCompleteTextView_matchWordStarts, true);
+            itemMatching = ItemMatching.valueOf(typedArray.getInt(R.styleable.EasyAutoCompleteTextView_itemMatching, 0));
 
             if (errorType.equals(ErrorType.VALUE)) {
                 errorType = ErrorType.NONE;
@@ -174,9 +288,17 @@ public class EasyAutoCompleteTextView extends AppCompatAutoCompleteTextView impl
                 items = Arrays.asList(getResources().getStringArray(itemResId));
             }
 
-            validator = new FormValidator(errorType, regexPattern, INVALID_VALUE, INVALID_VALUE, minChars, maxChars);
-
-            textWatcher.setValidator(validator);
+            setValidatorSpec(new ValidatorSpec.Builder()
+                    .setErrorType(errorType)
+                    .setRegexPattern(regexPattern)
+                    .setMinChars(minChars)
+                    .setMaxChars(maxChars)
+                    .setErrorMessage(errorMessage)
+                    .setErrorMessage(ErrorType.EMPTY, typedArray.getString(R.styleable.EasyAutoCompleteTextView_emptyErrorMessage))
+                    .setErrorMessage(ErrorType.PATTERN, typedArray.getString(R.styleable.EasyAutoCompleteTextView_patternErrorMessage))
+                    .setErrorMessage(ErrorType.CHARS, typedArray.getString(R.styleable.EasyAutoCompleteTextView_charsErrorMessage))
+                    .setErrorMessage(ErrorType.ITEM, typedArray.getString(R.styleable.EasyAutoCompleteTextView_itemErrorMessage))
+                    .build());
 
             typedArray.recycle();
         }
@@ -18,38 +18,43 @@ package com.emmasuzuki.easyform;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.WindowManager;
 import android.widget.Button;
 import android.widget.RelativeLayout;
 
-public class EasyForm extends RelativeLayout implements EasyFormErrorTextListener {
+import java.util.Arrays;
 
-    private Button submitButton;
-    private ShowErrorOn showErrorOn = ShowErrorOn.CHANGE;
-
-    private SparseArray<FormInputs> fieldCheckList;
-    private int submitButtonId;
+public class EasyForm extends RelativeLayout implements EasyFormErrorTextListener, ViewGroup.OnHierarchyChangeListener {
 
-    private static class FormInputs {
+    static final int DEFAULT_DEBOUNCE_MILLIS = 300;
 
-        private View view;
-        boolean isValid;
-
-        FormInputs(View view, boolean isValid) {
-            this.view = view;
-            this.isValid = isValid;
-        }
+    private final FormStateDispatcher formStateDispatcher = new FormStateDispatcher();
+    private ShowErrorOn showErrorOn = ShowErrorOn.CHANGE;
+    private int debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+
+    // Validity lives in the fields' FieldStates, aggregated by the model. Views are indexed by the
+    // model's slot of their field.
+    private FormModel formModel;
+    private FormMetrics formMetrics;
+    private FrameBudgetWatchdog frameBudgetWatchdog;
+    private View[] fields;
+    private int submitButtonId;
 
-        public View getView() {
-            return view;
-        }
-    }
+    private OnHierarchyChangeListener onHierarchyChangeListener;
 
     public EasyForm(Context context) {
         super(context);
+
+        // Not inflated, so fields are only ever added in code.
+        initializeFields();
+        super.setOnHierarchyChangeListener(this);
     }
 
     public EasyForm(Context context, AttributeSet attrs) {
@@ -68,101 +73,364 @@ public class EasyForm extends RelativeLayout implements EasyFormErrorTextListene
     protected void onFinishInflate() {
         super.onFinishInflate();
 
-        submitButton = (Button) findViewById(submitButtonId);
+        formStateDispatcher.setSubmitButton((Button) findViewById(submitButtonId));
 
-        fieldCheckList = new SparseArray<>(getChildCount());
-        initializeFieldCheckList(this);
+        if (fields == null) {
+            initializeFields();
+        }
+
+        Tracing.beginSection(Tracing.DISCOVER_FIELDS);
+        try {
+            initializeFieldCheckList(this);
+        } finally {
+            Tracing.endSection();
+        }
+        super.setOnHierarchyChangeListener(this);
 
-        enableSubmitButton((fieldCheckList.size() < 2 && showErrorOn == ShowErrorOn.UNFOCUS) || isValid());
+        updateSubmitButton();
     }
 
+    // Children added to or removed from the form after inflation, e.g. conditional sections or
+    // inflated stubs, have their fields registered or dropped here without walking the rest of the
+    // form. Nested groups keep their own hierarchy listener (RadioGroup and TableLayout rely on it),
+    // so changes inside them go through registerField and unregisterField.
+    // ViewGroup.onViewAdded would do the same but needs API 23.
     @Override
-    public void onFilled(View view) {
-        fieldCheckList.get(view.getId()).isValid = true;
-
-        if (showErrorOn == ShowErrorOn.CHANGE) {
-            if (isValid()) {
-                enableSubmitButton(true);
-            }
-        } else {
-            if (isLastFieldToFill()) {
-                enableSubmitButton(true);
+    public void onChildViewAdded(View parent, View child) {
+        if (fields != null) {
+            Tracing.beginSection(Tracing.DISCOVER_FIELDS);
+            try {
+                registerFields(child);
+            } finally {
+                Tracing.endSection();
             }
+            updateSubmitButton();
+        }
+
+        if (onHierarchyChangeListener != null) {
+            onHierarchyChangeListener.onChildViewAdded(parent, child);
         }
     }
 
+    @Override
+    public void onChildViewRemoved(View parent, View child) {
+        if (fields != null) {
+            removeFields(child);
+            updateSubmitButton();
+        }
+
+        if (onHierarchyChangeListener != null) {
+            onHierarchyChangeListener.onChildViewRemoved(parent, child);
+        }
+    }
+
+    @Override
+    public void setOnHierarchyChangeListener(OnHierarchyChangeListener listener) {
+        onHierarchyChangeListener = listener;
+    }
+
+    // The field's FieldState, and so the model, are already updated when these are called.
+    @Override
+    public void onFilled(View view) {
+        onFieldStateChanged();
+    }
+
     @Override
     public void onError(View view) {
-        fieldCheckList.get(view.getId()).isValid = false;
+        onFieldStateChanged();
+    }
+
+    // The field passed its built-in rules and waits for an AsyncValidator, keep submit disabled meanwhile.
+    @Override
+    public void onPending(View view) {
+        onFieldStateChanged();
+    }
+
+
+    // Saves each validated field's result with a hash of its rules and text, so that after a
+    // configuration change or process death only fields whose text comes back different are validated.
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        Parcelable superState = super.onSaveInstanceState();
+        if (formModel == null) {
+            return superState;
+        }
+
+        int count = 0;
+        int[] ids = new int[formModel.getFieldCount()];
+        int[] hashes = new int[ids.length];
+        int[] flags = new int[ids.length];
+        String[] errorMessages = new String[ids.length];
 
-        if (showErrorOn == ShowErrorOn.CHANGE || !isLastFieldToFill()) {
-            enableSubmitButton(false);
+        for (int slot = 0; slot < formModel.getSlotCount(); slot++) {
+            FieldState fieldState = formModel.getFieldAt(slot);
+            if (fieldState == null || fields[slot] == null || !fieldState.isValidated()) {
+                continue;
+            }
+
+            ids[count] = fieldState.id;
+            hashes[count] = fieldState.getResultHash();
+            flags[count] = (fieldState.isValid() ? SavedState.VALID : 0)
+                    | (fieldState.isPending() ? SavedState.PENDING : 0)
+                    | (isErrorShown(fields[slot]) ? SavedState.ERROR_SHOWN : 0);
+            errorMessages[count] = fieldState.getErrorMessage();
+            count++;
         }
+
+        return new SavedState(superState, Arrays.copyOf(ids, count), Arrays.copyOf(hashes, count),
+                Arrays.copyOf(flags, count), Arrays.copyOf(errorMessages, count));
     }
 
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        super.onRestoreInstanceState(state instanceof SavedState ? ((SavedState) state).getSuperState() : state);
+    }
+
+    // Fields restore their text after the form restored its own state. Their watchers skip
+    // validation meanwhile, and the saved results are applied once all text is back.
+    @Override
+    protected void dispatchRestoreInstanceState(SparseArray<Parcelable> container) {
+        Parcelable state = getId() != NO_ID ? container.get(getId()) : null;
+        if (formModel == null || !(state instanceof SavedState)) {
+            super.dispatchRestoreInstanceState(container);
+            return;
+        }
+
+        formModel.restoring = true;
+        try {
+            super.dispatchRestoreInstanceState(container);
+        } finally {
+            formModel.restoring = false;
+        }
+
+        restoreResults((SavedState) state);
+        updateSubmitButton();
+    }
 
     // For unfocus case, validate on button click because button will be enabled
-    // before the last field becomes valid.
+    // before the last field becomes valid. Debounced validations still pending are run right away.
     public void validate() {
-        for (int i = 0; i < fieldCheckList.size(); i++) {
-            FormInputs formInputs = fieldCheckList.get(fieldCheckList.keyAt(i));
-            View view = formInputs.getView();
-            if (view instanceof EasyFormEditText) {
-                EasyFormEditText editText = (EasyFormEditText) view;
-                editText.validate();
-            } else if (view instanceof EasyAutoCompleteTextView) {
-                EasyAutoCompleteTextView autoCompleteTextView = (EasyAutoCompleteTextView) view;
-                autoCompleteTextView.validate();
-            } else {
-                EasyTextInputLayout textInputLayout = (EasyTextInputLayout) view;
-                textInputLayout.validate();
+        for (int i = 0; i < formModel.getSlotCount(); i++) {
+            if (fields[i] != null) {
+                validate(fields[i]);
             }
         }
     }
 
     public boolean isValid() {
-        for (int i = 0; i < fieldCheckList.size(); i++) {
-            FormInputs formInputs = fieldCheckList.get(fieldCheckList.keyAt(i));
-            if (!formInputs.isValid) {
-                return false;
+        return formModel.isValid();
+    }
+
+    public boolean isValidationPending() {
+        return formModel.isValidationPending();
+    }
+
+    // Only called on transitions, and once right away with the current state if known.
+    public void addFormStateListener(FormStateListener listener) {
+        formStateDispatcher.addListener(listener);
+    }
+
+    public void removeFormStateListener(FormStateListener listener) {
+        formStateDispatcher.removeListener(listener);
+    }
+
+    // Null until the fields have been registered.
+    public FormState getFormState() {
+        return formStateDispatcher.getState();
+    }
+
+    // Registers a field whose rules were set in code after inflation, or registers it again after
+    // its rules were replaced. Also registers a field, or a group of fields, added inside a nested
+    // group after inflation. Fields without rules are ignored.
+    public void registerField(View view) {
+        if (fields == null) {
+            initializeFields();
+        }
+
+        registerFields(view);
+        updateSubmitButton();
+    }
+
+    // Drops a field, or the fields of a group, removed from a nested group after inflation.
+    public void unregisterField(View view) {
+        if (fields == null) {
+            return;
+        }
+
+        removeFields(view);
+        updateSubmitButton();
+    }
+
+    // Values and validity of the fields, readable without going through the views.
+    public FormModel getFormModel() {
+        return formModel;
+    }
+
+    // Times validation, error rendering and formatting of every field. Null turns timing off.
+    public void setFormMetrics(FormMetrics formMetrics) {
+        this.formMetrics = formMetrics;
+
+        if (formModel != null) {
+            formModel.setFormMetrics(formMetrics);
+        }
+    }
+
+    public FormMetrics getFormMetrics() {
+        return formMetrics;
+    }
+
+    // Logs keystrokes whose library work exceeds the watchdog's share of a frame. Null turns it off.
+    public void setFrameBudgetWatchdog(FrameBudgetWatchdog frameBudgetWatchdog) {
+        this.frameBudgetWatchdog = frameBudgetWatchdog;
+
+        if (frameBudgetWatchdog != null) {
+            frameBudgetWatchdog.resources = getResources();
+            WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+            if (windowManager != null) {
+                frameBudgetWatchdog.setRefreshRate(windowManager.getDefaultDisplay().getRefreshRate());
             }
         }
 
-        return true;
+        if (formModel != null) {
+            formModel.setFrameBudgetWatchdog(frameBudgetWatchdog);
+        }
+    }
+
+    public FrameBudgetWatchdog getFrameBudgetWatchdog() {
+        return frameBudgetWatchdog;
+    }
+
+    private void initializeFields() {
+        formModel = new FormModel();
+        formModel.setFormMetrics(formMetrics);
+        formModel.setFrameBudgetWatchdog(frameBudgetWatchdog);
+        fields = new View[Math.max(4, getChildCount())];
     }
 
     private void initializeFieldCheckList(ViewGroup viewGroup) {
         for (int i = 0; i < viewGroup.getChildCount(); i++) {
-            View view = viewGroup.getChildAt(i);
-            if (view instanceof EasyTextInputLayout) {
-                EasyTextInputLayout easyTextInputLayout = (EasyTextInputLayout) view;
-                if (easyTextInputLayout.getErrorType() != ErrorType.NONE) {
-                    easyTextInputLayout.setEasyFormEditTextListener(this);
-                    easyTextInputLayout.setShowErrorOn(showErrorOn);
-                    fieldCheckList.put(easyTextInputLayout.getId(), new FormInputs(easyTextInputLayout, false));
-                }
-
-            } else if (view instanceof ViewGroup) {
-                initializeFieldCheckList((ViewGroup) view);
-
-            } else if (view instanceof EasyFormEditText) {
-                EasyFormEditText easyFormEditText = (EasyFormEditText) view;
-                if (easyFormEditText.getErrorType() != ErrorType.NONE) {
-                    easyFormEditText.setEasyFormEditTextListener(this);
-                    easyFormEditText.setShowErrorOn(showErrorOn);
-                    fieldCheckList.put(easyFormEditText.getId(), new FormInputs(easyFormEditText, false));
-                }
-            } else if (view instanceof EasyAutoCompleteTextView) {
-                EasyAutoCompleteTextView easyAutoCompleteTextView = (EasyAutoCompleteTextView) view;
-                if (easyAutoCompleteTextView.getErrorType() != ErrorType.NONE) {
-                    easyAutoCompleteTextView.setEasyFormEditTextListener(this);
-                    easyAutoCompleteTextView.setShowErrorOn(showErrorOn);
-                    fieldCheckList.put(easyAutoCompleteTextView.getId(), new FormInputs(easyAutoCompleteTextView, false));
-                }
+            registerFields(viewGroup.getChildAt(i));
+        }
+    }
+
+    private void registerFields(View view) {
+        if (view instanceof ViewGroup && !(view instanceof EasyTextInputLayout)) {
+            initializeFieldCheckList((ViewGroup) view);
+        } else {
+            registerFieldView(view);
+        }
+    }
+
+    private void registerFieldView(View view) {
+        if (view instanceof EasyTextInputLayout) {
+            EasyTextInputLayout easyTextInputLayout = (EasyTextInputLayout) view;
+            if (easyTextInputLayout.getErrorType() != ErrorType.NONE) {
+                easyTextInputLayout.setEasyFormEditTextListener(this);
+                easyTextInputLayout.setShowErrorOn(showErrorOn, debounceMillis);
+                addField(easyTextInputLayout, easyTextInputLayout.getFieldState());
+            }
+
+        } else if (view instanceof EasyFormEditText) {
+            EasyFormEditText easyFormEditText = (EasyFormEditText) view;
+            if (easyFormEditText.getErrorType() != ErrorType.NONE) {
+                easyFormEditText.setEasyFormEditTextListener(this);
+                easyFormEditText.setShowErrorOn(showErrorOn, debounceMillis);
+                addField(easyFormEditText, easyFormEditText.getFieldState());
+            }
+
+        } else if (view instanceof EasyAutoCompleteTextView) {
+            EasyAutoCompleteTextView easyAutoCompleteTextView = (EasyAutoCompleteTextView) view;
+            if (easyAutoCompleteTextView.getErrorType() != ErrorType.NONE) {
+                easyAutoCompleteTextView.setEasyFormEditTextListener(this);
+                easyAutoCompleteTextView.setShowErrorOn(showErrorOn, debounceMillis);
+                addField(easyAutoCompleteTextView, easyAutoCompleteTextView.getFieldState());
             }
         }
     }
 
+    private void removeFields(View view) {
+        if (view instanceof EasyTextInputLayout) {
+            ((EasyTextInputLayout) view).setEasyFormEditTextListener(null);
+            removeField(view);
+
+        } else if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                removeFields(viewGroup.getChildAt(i));
+            }
+
+        } else if (view instanceof EasyFormEditText) {
+            ((EasyFormEditText) view).setEasyFormEditTextListener(null);
+            removeField(view);
+
+        } else if (view instanceof EasyAutoCompleteTextView) {
+            ((EasyAutoCompleteTextView) view).setEasyFormEditTextListener(null);
+            removeField(view);
+        }
+    }
+
+    // A field still waiting for its AsyncValidator has no result to restore and is validated again.
+    private void restoreResults(SavedState state) {
+        for (int i = 0; i < state.ids.length; i++) {
+            FieldState fieldState = formModel.getField(state.ids[i]);
+            if (fieldState == null) {
+                continue;
+            }
+
+            View view = fields[fieldState.slot];
+            CharSequence text = getText(view);
+            int flags = state.flags[i];
+
+            if ((flags & SavedState.PENDING) == 0
+                    && FieldState.hash(fieldState.spec, FieldState.hash(text)) == state.hashes[i]) {
+                fieldState.restoreResult(text, (flags & SavedState.VALID) != 0, state.errorMessages[i]);
+                renderError(view, (flags & SavedState.ERROR_SHOWN) != 0 ? state.errorMessages[i] : null);
+            } else {
+                validate(view);
+            }
+        }
+    }
+
+    private void validate(View view) {
+        if (view instanceof EasyFormEditText) {
+            ((EasyFormEditText) view).validate();
+        } else if (view instanceof EasyAutoCompleteTextView) {
+            ((EasyAutoCompleteTextView) view).validate();
+        } else {
+            ((EasyTextInputLayout) view).validate();
+        }
+    }
+
+    private CharSequence getText(View view) {
+        if (view instanceof EasyTextInputLayout) {
+            return ((EasyTextInputLayout) view).getEditText().getText();
+        } else if (view instanceof EasyFormEditText) {
+            return ((EasyFormEditText) view).getText();
+        } else {
+            return ((EasyAutoCompleteTextView) view).getText();
+        }
+    }
+
+    private boolean isErrorShown(View view) {
+        if (view instanceof EasyFormEditText) {
+            return ((EasyFormEditText) view).isErrorShown();
+        } else if (view instanceof EasyAutoCompleteTextView) {
+            return ((EasyAutoCompleteTextView) view).isErrorShown();
+        } else {
+            return ((EasyTextInputLayout) view).isErrorShown();
+        }
+    }
+
+    private void renderError(View view, String errorMessage) {
+        if (view instanceof EasyFormEditText) {
+            ((EasyFormEditText) view).renderError(errorMessage);
+        } else if (view instanceof EasyAutoCompleteTextView) {
+            ((EasyAutoCompleteTextView) view).renderError(errorMessage);
+        } else {
+            ((EasyTextInputLayout) view).renderError(errorMessage);
+        }
+    }
+
     private void setPropertyFromAttributes(AttributeSet attrs) {
         TypedArray typedArray = getContext().obtainStyledAttributes(attrs, R.styleable.EasyForm);
 
@@ -170,33 +438,106 @@ public class EasyForm extends RelativeLayout implements EasyFormErrorTextListene
             submitButtonId = typedArray.getResourceId(R.styleable.EasyForm_submitButton, -1);
             int type = typedArray.getInt(R.styleable.EasyForm_showErrorOn, -1);
             showErrorOn = ShowErrorOn.valueOf(type);
+            debounceMillis = typedArray.getInt(R.styleable.EasyForm_debounceMillis, DEFAULT_DEBOUNCE_MILLIS);
 
             typedArray.recycle();
         }
     }
 
-    private boolean isLastFieldToFill() {
-        int filled = 0;
+    private void addField(View view, FieldState fieldState) {
+        // Fields created in code may have no id, which is what fields are keyed by.
+        if (view.getId() == View.NO_ID) {
+            view.setId(ViewCompat.generateViewId());
+        }
 
-        for (int i = 0; i < fieldCheckList.size(); i++) {
-            FormInputs formInputs = fieldCheckList.get(fieldCheckList.keyAt(i));
-            if (formInputs.isValid) {
-                filled++;
-            }
+        FieldState existing = formModel.getField(view.getId());
+        if (existing != null) {
+            fields[existing.slot] = null;
         }
 
-        return filled >= fieldCheckList.size() - 1;
+        fieldState.id = view.getId();
+        formModel.addField(fieldState);
+
+        if (fieldState.slot >= fields.length) {
+            View[] grown = new View[Math.max(fieldState.slot + 1, fields.length * 2)];
+            System.arraycopy(fields, 0, grown, 0, fields.length);
+            fields = grown;
+        }
+        fields[fieldState.slot] = view;
     }
 
-    private void enableSubmitButton(boolean enable) {
-        if (submitButton != null) {
-            if (enable) {
-                submitButton.setEnabled(true);
-                submitButton.setAlpha(1f);
-            } else {
-                submitButton.setEnabled(false);
-                submitButton.setAlpha(0.5f);
-            }
+    private void removeField(View view) {
+        FieldState fieldState = formModel.getField(view.getId());
+        if (fieldState == null || fields[fieldState.slot] != view) {
+            return;
+        }
+
+        fields[fieldState.slot] = null;
+        formModel.removeField(view.getId());
+    }
+
+    private void onFieldStateChanged() {
+        Tracing.beginSection(Tracing.AGGREGATE);
+        try {
+            updateSubmitButton();
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    // The state is derived from the model alone, so it cannot be left behind by any field event.
+    private void updateSubmitButton() {
+        formStateDispatcher.setState(formModel.getFormState(showErrorOn == ShowErrorOn.UNFOCUS));
+    }
+
+    // Per validated field: id, hash of rules and text, result flags and error message.
+    static class SavedState extends BaseSavedState {
+
+        static final int VALID = 1;
+        static final int ERROR_SHOWN = 1 << 1;
+        static final int PENDING = 1 << 2;
+
+        final int[] ids;
+        final int[] hashes;
+        final int[] flags;
+        final String[] errorMessages;
+
+        SavedState(Parcelable superState, int[] ids, int[] hashes, int[] flags, String[] errorMessages) {
+            super(superState);
+            this.ids = ids;
+            this.hashes = hashes;
+            this.flags = flags;
+            this.errorMessages = errorMessages;
         }
+
+        SavedState(Parcel source) {
+            super(source);
+            ids = source.createIntArray();
+            hashes = source.createIntArray();
+            flags = source.createIntArray();
+            errorMessages = source.createStringArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeIntArray(ids);
+            dest.writeIntArray(hashes);
+            dest.writeIntArray(this.flags);
+            dest.writeStringArray(errorMessages);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.emmasuzuki.easyform;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entry point to the binders easyform-compiler generates for classes with {@link FormField}s.
+ */
+public final class EasyFormBinder {
+
+    static final String BINDER_SUFFIX = "_EasyFormBinder";
+
+    // Generated bind methods by target class, looked up once per class.
+    private static final Map<Class<?>, Method> bindMethods = new HashMap<>();
+
+    private EasyFormBinder() {}
+
+    // Looks up the target's annotated fields in the form, sets their rules and registers them.
+    // UI thread only.
+    public static void bind(Object target, EasyForm form) {
+        try {
+            getBindMethod(target.getClass()).invoke(null, target, form);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access " + target.getClass().getName() + BINDER_SUFFIX, e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Binding " + target.getClass().getName() + " failed", e.getCause());
+        }
+    }
+
+    private static Method getBindMethod(Class<?> targetClass) {
+        Method bindMethod = bindMethods.get(targetClass);
+        if (bindMethod != null) {
+            return bindMethod;
+        }
+
+        try {
+            Class<?> binderClass = Class.forName(targetClass.getName() + BINDER_SUFFIX, true, targetClass.getClassLoader());
+            bindMethod = binderClass.getMethod("bind", targetClass, EasyForm.class);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new IllegalStateException("No " + targetClass.getName() + BINDER_SUFFIX
+                    + ", is easyform-compiler set as annotationProcessor and are fields annotated with @FormField?", e);
+        }
+
+        bindMethods.put(targetClass, bindMethod);
+        return bindMethod;
+    }
+}
@@ -19,25 +19,36 @@ package com.emmasuzuki.easyform;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.support.v7.widget.AppCompatEditText;
-import android.text.InputFilter;
 import android.text.InputType;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
 
+import java.util.concurrent.Executor;
+
 import static com.emmasuzuki.easyform.FormValidator.INVALID_VALUE;
 
-public class EasyFormEditText extends AppCompatEditText implements View.OnFocusChangeListener, EasyFormTextListener {
+// Only for implementing the deprecated EasyFormTextListener, which apps may still call through.
+// A warning on an implements clause can only be suppressed on the class itself.
+@SuppressWarnings("deprecation")
+public class EasyFormEditText extends AppCompatEditText implements View.OnFocusChangeListener, EasyFormTextListener, FormatListener {
 
-    private FormValidator validator;
+    private ValidatorSpec spec;
+    private FieldState fieldState;
+    private EasyFormTextWatcher formatWatcher;
     private EasyFormErrorTextListener easyFormErrorTextListener;
 
-    private String errorMessage;
+    private int debounceMillis = INVALID_VALUE;
 
     private EasyFormErrorTextWatcher errorTextWatcher = new EasyFormErrorTextWatcher(this) {
 
         @Override
-        protected void renderError() {
+        protected CharSequence getFieldText() {
+            return EasyFormEditText.this.getText();
+        }
+
+        @Override
+        protected void renderError(String errorMessage) {
             setError(errorMessage);
         }
 
@@ -49,6 +60,8 @@ public class EasyFormEditText extends AppCompatEditText implements View.OnFocusC
 
     public EasyFormEditText(Context context) {
         super(context);
+
+        setValidatorSpec(ValidatorSpec.NO_RULES);
     }
 
     public EasyFormEditText(Context context, AttributeSet attrs) {
@@ -75,63 +88,131 @@ public class EasyFormEditText extends AppCompatEditText implements View.OnFocusC
     }
 
     @Override
-    public void formatted(String formattedString, int cursorPos) {
-        setText(formattedString);
-        if (cursorPos <= formattedString.length()) {
+    public void formatted(int cursorPos) {
+        if (cursorPos <= length()) {
             setSelection(cursorPos);
         }
     }
 
+    /**
+     * @deprecated The text is formatted in place; only the cursor is set through {@link #formatted(int)}.
+     */
+    @Deprecated
+    @Override
+    public void formatted(String formattedString, int cursorPos) {
+        setText(formattedString);
+        formatted(cursorPos);
+    }
+
+    FieldState getFieldState() {
+        return fieldState;
+    }
+
     void validate() {
-        boolean isValid = validator.isValid(getText().toString());
-        setError(isValid ? null : errorMessage);
+        errorTextWatcher.validate(getText());
+    }
+
+    // Shows the message, or clears the error when null, without running this field's own rules.
+    void renderError(String errorMessage) {
+        errorTextWatcher.showErrorNow(errorMessage);
+    }
+
+    boolean isErrorShown() {
+        return errorTextWatcher.isErrorShown();
+    }
 
-        if (isValid) {
-            easyFormErrorTextListener.onFilled(this);
+    // Replaces the rules, e.g. with pre-resolved ones from a generated EasyFormBinder. Fields with
+    // equal specs share one spec and validator. Setters below derive a new spec from the current one.
+    public void setValidatorSpec(ValidatorSpec spec) {
+        this.spec = spec;
+
+        if (fieldState == null) {
+            fieldState = new FieldState(getId(), spec, spec.sharedValidator(), spec.getErrorMessage());
+            errorTextWatcher.setFieldState(fieldState);
+            if (formatWatcher != null) {
+                formatWatcher.setFieldState(fieldState);
+            }
         } else {
-            easyFormErrorTextListener.onError(this);
+            fieldState.setSpec(spec, spec.sharedValidator());
         }
     }
 
+    public ValidatorSpec getValidatorSpec() {
+        return spec;
+    }
+
+    // Brand of the issuer prefix typed so far, which also sets the grouping of a creditCard field.
+    public CardBrand getCardBrand() {
+        return CardBrand.detect(getText());
+    }
+
     public ErrorType getErrorType() {
-        return validator.getErrorType();
+        return fieldState.validator.getErrorType();
     }
 
     public void setErrorType(ErrorType errorType) {
-        validator.setErrorType(errorType);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setOnlyErrorType(errorType).build());
     }
 
     public void setRegexPattern(String regexPattern) {
-        validator.setRegexPattern(regexPattern);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setRegexPattern(regexPattern).build());
     }
 
     public void setMinValue(int minValue) {
-        validator.setMinValue(minValue);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setMinValue(minValue).build());
     }
 
     public void setMaxValue(int maxValue) {
-        validator.setMaxValue(maxValue);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setMaxValue(maxValue).build());
+    }
+
+    public void setValuePrecision(ValuePrecision valuePrecision) {
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setValuePrecision(valuePrecision).build());
     }
 
     public void setMinChars(int minChars) {
-        validator.setMinChars(minChars);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setMinChars(minChars).build());
     }
 
     public void setMaxChars(int maxChars) {
-        validator.setMaxChars(maxChars);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setMaxChars(maxChars).build());
     }
 
     public void setErrorMessage(String errorMessage) {
-        this.errorMessage = errorMessage;
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setErrorMessage(errorMessage).build());
     }
 
-    void setShowErrorOn(ShowErrorOn showErrorOn) {
-        if (showErrorOn == ShowErrorOn.CHANGE) {
-            addTextChangedListener(errorTextWatcher);
-            setOnFocusChangeListener(null);
-        } else {
+    public void setErrorMessage(ErrorType errorType, String errorMessage) {
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setErrorMessage(errorType, errorMessage).build());
+    }
+
+    public void setHideErrorWhileIncomplete(boolean hideErrorWhileIncomplete) {
+        errorTextWatcher.setHideErrorWhileIncomplete(hideErrorWhileIncomplete);
+    }
+
+    public void setAsyncValidator(AsyncValidator asyncValidator, String errorMessage) {
+        errorTextWatcher.setAsyncValidator(asyncValidator, errorMessage);
+    }
+
+    public void setAsyncValidatorExecutor(Executor executor) {
+        errorTextWatcher.setAsyncExecutor(executor);
+    }
+
+    public boolean isValidationPending() {
+        return errorTextWatcher.isPending();
+    }
+
+    void setShowErrorOn(ShowErrorOn showErrorOn, int formDebounceMillis) {
+        if (showErrorOn == ShowErrorOn.UNFOCUS) {
             removeTextChangedListener(errorTextWatcher);
             setOnFocusChangeListener(this);
+        } else {
+            errorTextWatcher.setDebounceMillis(getDebounceMillis(showErrorOn, formDebounceMillis));
+            errorTextWatcher.resetChanges();
+            // The form calls this again when the field is added back; it must not get a second watcher.
+            removeTextChangedListener(errorTextWatcher);
+            addTextChangedListener(errorTextWatcher);
+            setOnFocusChangeListener(errorTextWatcher.validatesOnUnfocus() ? this : null);
         }
     }
 
@@ -140,35 +221,65 @@ public class EasyFormEditText extends AppCompatEditText implements View.OnFocusC
         errorTextWatcher.setEasyFormErrorTextListener(easyFormEditTextListener);
     }
 
+    private int getDebounceMillis(ShowErrorOn showErrorOn, int formDebounceMillis) {
+        if (debounceMillis != INVALID_VALUE) {
+            return debounceMillis;
+        }
+
+        return showErrorOn == ShowErrorOn.DEBOUNCED ? formDebounceMillis : 0;
+    }
+
     private void setPropertyFromAttributes(AttributeSet attrs) {
         TypedArray typedArray = getContext().obtainStyledAttributes(attrs, R.styleable.EasyFormEditText);
 
         if (typedArray != null) {
             int type = typedArray.getInt(R.styleable.EasyFormEditText_errorType, -1);
             ErrorType errorType = ErrorType.valueOf(type);
-            errorMessage = typedArray.getString(R.styleable.EasyFormEditText_errorMessage);
+            String errorMessage = typedArray.getString(R.styleable.EasyFormEditText_errorMessage);
             String regexPattern = typedArray.getString(R.styleable.EasyFormEditText_regexPattern);
             float minValue = typedArray.getFloat(R.styleable.EasyFormEditText_minValue, INVALID_VALUE);
             float maxValue = typedArray.getFloat(R.styleable.EasyFormEditText_maxValue, INVALID_VALUE);
+            int valuePrecision = typedArray.getInt(R.styleable.EasyFormEditText_valuePrecision, -1);
             int minChars = typedArray.getInt(R.styleable.EasyFormEditText_minChars, INVALID_VALUE);
             int maxChars = typedArray.getInt(R.styleable.EasyFormEditText_maxChars, INVALID_VALUE);
+            debounceMillis = typedArray.getInt(R.styleable.EasyFormEditText_debounceMillis, INVALID_VALUE);
+            errorTextWatcher.setHideErrorWhileIncomplete(typedArray.getBoolean(R.styleable.EasyFormEditText_hideErrorWhileIncomplete, false));
             int formType = typedArray.getInt(R.styleable.EasyFormEditText_type, -1);
             EasyFormType easyFormType = EasyFormType.valueOf(formType);
             if (easyFormType == EasyFormType.CREDIT_CARD) {
                 EasyFormTextWatcher watcher = new EasyFormTextWatcher(easyFormType);
                 watcher.setListener(this);
+                formatWatcher = watcher;
                 addTextChangedListener(watcher);
-                setFilters(new InputFilter[]{new InputFilter.LengthFilter(19)});
                 setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+            } else if (easyFormType == EasyFormType.PHONE_NUMBER) {
+                EasyFormTextWatcher watcher = new EasyFormTextWatcher(easyFormType);
+                watcher.setListener(this);
+                watcher.setPhoneRegion(typedArray.getString(R.styleable.EasyFormEditText_phoneRegion));
+                formatWatcher = watcher;
+                addTextChangedListener(watcher);
+                setInputType(InputType.TYPE_CLASS_PHONE);
             }
 
             if (errorMessage == null) {
                 errorMessage = "Error";
             }
 
-            validator = new FormValidator(errorType, regexPattern, minValue, maxValue, minChars, maxChars);
-
-            errorTextWatcher.setValidator(validator);
+            setValidatorSpec(new ValidatorSpec.Builder()
+                    .setErrorType(errorType)
+                    .setRegexPattern(regexPattern)
+                    .setMinValue(minValue)
+                    .setMaxValue(maxValue)
+                    .setValuePrecision(ValuePrecision.valueOf(valuePrecision))
+                    .setMinChars(minChars)
+                    .setMaxChars(maxChars)
+                    .setErrorMessage(errorMessage)
+                    .setErrorMessage(ErrorType.EMPTY, typedArray.getString(R.styleable.EasyFormEditText_emptyErrorMessage))
+                    .setErrorMessage(ErrorType.PATTERN, typedArray.getString(R.styleable.EasyFormEditText_patternErrorMessage))
+                    .setErrorMessage(ErrorType.VALUE, typedArray.getString(R.styleable.EasyFormEditText_valueErrorMessage))
+                    .setErrorMessage(ErrorType.CHARS, typedArray.getString(R.styleable.EasyFormEditText_charsErrorMessage))
+                    .setErrorMessage(ErrorType.CARD, typedArray.getString(R.styleable.EasyFormEditText_cardErrorMessage))
+                    .build());
 
             typedArray.recycle();
         }
@@ -22,4 +22,6 @@ interface EasyFormErrorTextListener {
     void onFilled(View view);
 
     void onError(View view);
+
+    void onPending(View view);
 }
@@ -16,16 +16,57 @@
 
 package com.emmasuzuki.easyform;
 
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.View;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
 abstract class EasyFormErrorTextWatcher implements TextWatcher {
 
     private View delegateView;
-    private FormValidator validator;
+    private FieldState fieldState;
     private EasyFormErrorTextListener easyFormErrorTextListener;
 
+    private AsyncValidator asyncValidator;
+    private String asyncErrorMessage;
+    private Executor asyncExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+    // Bumped on every validation and every watched edit, so that an async result for older text is
+    // dropped. Edits made while the watcher is detached (errors on unfocus) bump nothing, so the
+    // result is also checked against the field's text when it arrives.
+    private final AtomicInteger generation = new AtomicInteger();
+    // Runs results on the UI thread.
+    private Executor resultExecutor;
+
+    private Handler handler;
+    private long debounceMillis;
+    private CharSequence pendingText;
+
+    // Error the view shows, and the one it is to show once the next frame flushes it.
+    private String renderedError;
+    private String requestedError;
+    private boolean errorScheduled;
+
+    // Chars at the start and at the end of the text not edited since the last validation, so the
+    // validator only goes over the edited range.
+    private int changedFrom;
+    private int unchangedSuffix;
+    private boolean hideErrorWhileIncomplete;
+
+    private final Runnable debouncedValidation = new Runnable() {
+
+        @Override
+        public void run() {
+            CharSequence text = pendingText;
+            pendingText = null;
+            validate(text, true);
+        }
+    };
+
     EasyFormErrorTextWatcher(View delegateView) {
         this.delegateView = delegateView;
     }
@@ -34,8 +75,54 @@ abstract class EasyFormErrorTextWatcher implements TextWatcher {
         this.easyFormErrorTextListener = easyFormErrorTextListener;
     }
 
-    void setValidator(FormValidator validator) {
-        this.validator = validator;
+    void setFieldState(FieldState fieldState) {
+        this.fieldState = fieldState;
+    }
+
+    void setAsyncValidator(AsyncValidator asyncValidator, String errorMessage) {
+        this.asyncValidator = asyncValidator;
+        this.asyncErrorMessage = errorMessage;
+    }
+
+    void setAsyncExecutor(Executor executor) {
+        this.asyncExecutor = executor;
+    }
+
+    void setResultExecutor(Executor executor) {
+        this.resultExecutor = executor;
+    }
+
+    boolean isPending() {
+        return fieldState.isPending();
+    }
+
+    // A positive value coalesces bursts of edits into one validation after the quiet period.
+    void setDebounceMillis(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+
+        if (debounceMillis <= 0) {
+            cancelPendingValidation();
+        }
+    }
+
+    boolean isDebounced() {
+        return debounceMillis > 0;
+    }
+
+    // While typing, a text that can still become valid (e.g. a pattern prefix) shows no error.
+    // The error is shown on unfocus instead.
+    void setHideErrorWhileIncomplete(boolean hideErrorWhileIncomplete) {
+        this.hideErrorWhileIncomplete = hideErrorWhileIncomplete;
+    }
+
+    boolean validatesOnUnfocus() {
+        return isDebounced() || hideErrorWhileIncomplete;
+    }
+
+    // Edits made while the watcher was detached were not seen.
+    void resetChanges() {
+        changedFrom = 0;
+        unchangedSuffix = 0;
     }
 
     @Override
@@ -44,20 +131,99 @@ abstract class EasyFormErrorTextWatcher implements TextWatcher {
 
     @Override
     public void onTextChanged(CharSequence s, int start, int before, int count) {
+        changedFrom = Math.min(changedFrom, start);
+        unchangedSuffix = Math.min(unchangedSuffix, s.length() - start - count);
     }
 
     @Override
     public void afterTextChanged(Editable s) {
-        boolean isValid = validator.isValid(s);
+        generation.incrementAndGet();
+
+        if (fieldState.model != null && fieldState.model.restoring) {
+            resetChanges();
+            return;
+        }
+
+        if (debounceMillis > 0) {
+            pendingText = s;
+            getHandler().removeCallbacks(debouncedValidation);
+            getHandler().postDelayed(debouncedValidation, debounceMillis);
+        } else {
+            validate(s, true);
+        }
+    }
+
+    void cancelPendingValidation() {
+        if (pendingText != null) {
+            handler.removeCallbacks(debouncedValidation);
+            pendingText = null;
+        }
+    }
+
+    void validate(CharSequence s) {
+        resetChanges();
+        validate(s, false);
+    }
+
+    private void validate(CharSequence s, boolean typing) {
+        cancelPendingValidation();
+
+        int currentGeneration = generation.incrementAndGet();
+        int from = changedFrom;
+        int suffix = unchangedSuffix;
+        changedFrom = unchangedSuffix = s.length();
+
+        FormModel timing = FormModel.timing(fieldState);
+        long start = timing != null ? System.nanoTime() : 0;
+
+        Tracing.beginSection(Tracing.VALIDATE);
+        boolean isValid;
+        try {
+            isValid = fieldState.validate(s, from, suffix);
+        } finally {
+            Tracing.endSection();
+        }
+
+        if (timing != null) {
+            timing.recordTiming(fieldState, FormMetrics.Phase.VALIDATION, System.nanoTime() - start);
+        }
+
+        if (isValid && asyncValidator != null) {
+            fieldState.setResult(false, null);
+            fieldState.setPending(true);
+            showError(null);
+
+            if (easyFormErrorTextListener != null) {
+                easyFormErrorTextListener.onPending(delegateView);
+            }
 
+            asyncExecutor.execute(new AsyncValidation(asyncValidator, s.toString(), currentGeneration, getResultExecutor()));
+        } else {
+            fieldState.setPending(false);
+            onValidated(isValid, fieldState.getErrorMessage(), typing && hideErrorWhileIncomplete && fieldState.isIncomplete());
+        }
+    }
+
+    private void onAsyncValidated(int validatedGeneration, String validatedText, boolean isValid) {
+        if (validatedGeneration != generation.get() || !validatedText.contentEquals(getFieldText())) {
+            return;
+        }
+
+        String message = asyncErrorMessage != null ? asyncErrorMessage : fieldState.defaultErrorMessage;
+        fieldState.setResult(isValid, isValid ? null : message);
+        fieldState.setPending(false);
+        onValidated(isValid, message, false);
+    }
+
+    private void onValidated(boolean isValid, String message, boolean hideError) {
         if (isValid) {
-            clearError();
+            showError(null);
 
             if (easyFormErrorTextListener != null) {
                 easyFormErrorTextListener.onFilled(delegateView);
             }
         } else {
-            renderError();
+            showError(hideError ? null : message);
 
             if (easyFormErrorTextListener != null) {
                 easyFormErrorTextListener.onError(delegateView);
@@ -65,7 +231,117 @@ abstract class EasyFormErrorTextWatcher implements TextWatcher {
         }
     }
 
-    protected abstract void renderError();
+    // Shows the message, or clears the error when null, on the next frame. Nothing is scheduled
+    // when the view already shows it.
+    void showError(String message) {
+        requestedError = message;
+
+        if (!errorScheduled && !sameMessage(message, renderedError)) {
+            errorScheduled = true;
+            ErrorRenderer.getInstance().schedule(this);
+        }
+    }
+
+    boolean isErrorShown() {
+        return requestedError != null;
+    }
+
+    // Same as showError but applied right away, e.g. while a recycled row is being bound.
+    void showErrorNow(String message) {
+        requestedError = message;
+        flushError();
+    }
+
+    void flushError() {
+        errorScheduled = false;
+
+        String message = requestedError;
+        if (sameMessage(message, renderedError)) {
+            return;
+        }
+        renderedError = message;
+
+        FormModel timing = FormModel.timing(fieldState);
+        long start = timing != null ? System.nanoTime() : 0;
+
+        Tracing.beginSection(Tracing.RENDER_ERROR);
+        try {
+            if (message != null) {
+                renderError(message);
+            } else {
+                clearError();
+            }
+        } finally {
+            Tracing.endSection();
+        }
+
+        if (timing != null) {
+            timing.recordTiming(fieldState, FormMetrics.Phase.RENDER, System.nanoTime() - start);
+        }
+    }
+
+    private Executor getResultExecutor() {
+        if (resultExecutor == null) {
+            resultExecutor = new Executor() {
+
+                @Override
+                public void execute(Runnable command) {
+                    getHandler().post(command);
+                }
+            };
+        }
+
+        return resultExecutor;
+    }
+
+    private Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+
+        return handler;
+    }
+
+    private static boolean sameMessage(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    protected abstract CharSequence getFieldText();
+
+    protected abstract void renderError(String errorMessage);
 
     protected abstract void clearError();
+
+    private class AsyncValidation implements Runnable {
+
+        private final AsyncValidator asyncValidator;
+        private final String text;
+        private final int validationGeneration;
+        private final Executor resultExecutor;
+
+        AsyncValidation(AsyncValidator asyncValidator, String text, int validationGeneration, Executor resultExecutor) {
+            this.asyncValidator = asyncValidator;
+            this.text = text;
+            this.validationGeneration = validationGeneration;
+            this.resultExecutor = resultExecutor;
+        }
+
+        @Override
+        public void run() {
+            // Superseded before it started, skip the check altogether.
+            if (validationGeneration != generation.get()) {
+                return;
+            }
+
+            final boolean isValid = asyncValidator.isValid(text);
+
+            resultExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    onAsyncValidated(validationGeneration, text, isValid);
+                }
+            });
+        }
+    }
 }
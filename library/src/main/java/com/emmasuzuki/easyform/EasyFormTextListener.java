@@ -15,6 +15,10 @@
 
 package com.emmasuzuki.easyform;
 
+/**
+ * @deprecated EasyFormTextWatcher now formats the text in place and no longer calls this.
+ */
+@Deprecated
 public interface EasyFormTextListener {
 
     void formatted(String formattedString, int cursorPos);
@@ -16,67 +16,189 @@
 package com.emmasuzuki.easyform;
 
 import android.text.Editable;
+import android.text.InputFilter;
 import android.text.TextWatcher;
-import android.util.Log;
 
 public class EasyFormTextWatcher implements TextWatcher {
 
+    private static final InputFilter[] NO_FILTERS = new InputFilter[0];
+
     private EasyFormType formType;
-    private EasyFormTextListener listener;
+    private FormatListener listener;
+    private FormatTemplate[] phoneTemplates;
+    private FormatTemplate currentTemplate;
+    // Field whose formatting time is recorded, if the form collects metrics.
+    private FieldState fieldState;
     private boolean lock;
-    private boolean deleted = false;
-    private int cursorPos;
+    private boolean literalDeleted;
+    private int editStart;
+    private int editEnd;
+    private int lengthDelta;
 
     public EasyFormTextWatcher(EasyFormType formType) {
         this.formType = formType;
+
+        if (formType == EasyFormType.PHONE_NUMBER) {
+            phoneTemplates = PhoneNumberTemplates.forRegion(null);
+        }
     }
 
-    void setListener(EasyFormTextListener listener) {
+    void setListener(FormatListener listener) {
         this.listener = listener;
     }
 
+    void setFieldState(FieldState fieldState) {
+        this.fieldState = fieldState;
+    }
+
+    void setPhoneRegion(String region) {
+        phoneTemplates = PhoneNumberTemplates.forRegion(region);
+        currentTemplate = null;
+    }
+
     @Override
     public void beforeTextChanged(CharSequence charSequence, int start, int count, int after) {
+        if (!lock) {
+            literalDeleted = count == 1 && after == 0 && !isDigit(charSequence.charAt(start));
+        }
     }
 
     @Override
     public void onTextChanged(CharSequence charSequence, int start, int before, int count) {
-        cursorPos = start + count;
-        deleted = count == 0 && start > 0;
+        if (!lock) {
+            editStart = start;
+            editEnd = start + count;
+            lengthDelta = count - before;
+        }
     }
 
     @Override
     public void afterTextChanged(Editable s) {
-        if (lock || s.length() > 19) {
+        if (lock) {
             return;
         }
-        lock = true;
 
+        FormatTemplate template = null;
         switch (formType) {
             case CREDIT_CARD:
-                formatCreditCard(s);
+                // Grouping and length follow the brand of the issuer prefix typed so far.
+                template = CardBrand.detect(s).template;
+                break;
+
+            case PHONE_NUMBER:
+                // A number typed with its country code, e.g. "+44 20...", follows no national layout
+                // and is left as typed.
+                boolean international = s.length() > 0 && s.charAt(0) == '+';
+                template = phoneTemplates == null || international ? null : PhoneNumberTemplates.select(phoneTemplates, s);
+                break;
+        }
+
+        if (template == null) {
+            // Nothing was formatted, so the next template must lay out the whole text.
+            currentTemplate = null;
+            return;
+        }
+
+        // The cursor stays after the edit, even when the whole text is laid out again.
+        int cursor = editEnd;
+        if (template != currentTemplate) {
+            // Leading digits picked another layout, so nothing in front of the edit can be trusted.
+            currentTemplate = template;
+            editStart = 0;
+            editEnd = s.length();
+        }
+
+        FormModel timing = FormModel.timing(fieldState);
+        long start = timing != null ? System.nanoTime() : 0;
+
+        // Only watchers bound to a field are traced.
+        if (fieldState != null) {
+            Tracing.beginSection(Tracing.FORMAT);
+        }
+
+        lock = true;
+
+        // Literals are inserted in place, so length filters must not swallow them mid-format.
+        InputFilter[] filters = s.getFilters();
+        s.setFilters(NO_FILTERS);
+
+        try {
+            format(s, template, cursor);
+        } finally {
+            s.setFilters(filters);
+            lock = false;
+
+            if (fieldState != null) {
+                Tracing.endSection();
+            }
         }
 
-        lock = false;
+        if (timing != null) {
+            timing.recordTiming(fieldState, FormMetrics.Phase.FORMAT, System.nanoTime() - start);
+        }
     }
 
-    private void formatCreditCard(Editable original) {
-        String raw = original.toString().replaceAll(" ", "");
-        Editable formatted = new Editable.Factory().newEditable(raw);
+    // Lays the digits out on the template by editing the Editable in place.
+    // Text in front of the edit is already formatted, so the pass starts at the edit and stops as soon
+    // as the untouched tail lines up with the template again.
+    private void format(Editable s, FormatTemplate template, int cursor) {
+        int pos = editStart;
+
+        if (literalDeleted && pos > 0) {
+            // Backspace over a literal removes the digit in front of it instead.
+            int digitPos = pos - 1;
+            while (digitPos > 0 && !isDigit(s.charAt(digitPos))) {
+                digitPos--;
+            }
+
+            s.delete(digitPos, digitPos + 1);
+            lengthDelta--;
+            pos = digitPos;
+            cursor = pos;
+            editEnd = pos;
+        }
 
-        for (int i = 4; i < formatted.length(); i += 5) {
-            if (formatted.toString().charAt(i) != ' ') {
-                formatted.insert(i, " ");
+        while (pos < s.length() && pos < template.length) {
+            if (pos >= editEnd && isAligned(template)) {
+                break;
             }
+
+            char c = s.charAt(pos);
+
+            if (template.isDigitSlot(pos) ? isDigit(c) : c == template.literalAt(pos)) {
+                pos++;
+            } else if (!template.isDigitSlot(pos) && isDigit(c)) {
+                s.insert(pos, template.pattern, pos, pos + 1);
+                cursor += pos < cursor ? 1 : 0;
+                editEnd++;
+                lengthDelta++;
+                pos++;
+            } else {
+                s.delete(pos, pos + 1);
+                cursor -= pos < cursor ? 1 : 0;
+                editEnd -= pos < editEnd ? 1 : 0;
+                lengthDelta--;
+            }
+        }
+
+        if (s.length() > template.length) {
+            s.delete(template.length, s.length());
         }
 
-        int curAdjust = 0;
-        if (deleted) {
-            curAdjust = (cursorPos > 4 && raw.length() % 4 == 0) ? curAdjust - 1 : 0;
-        } else if (raw.length() > 1 && (raw.length() - 1) % 4 == 0) {
-            curAdjust++;
+        int length = s.length();
+        while (length > 0 && !isDigit(s.charAt(length - 1))) {
+            s.delete(length - 1, length);
+            length--;
         }
 
-        listener.formatted(formatted.toString(), cursorPos + curAdjust);
+        listener.formatted(Math.min(cursor, length));
+    }
+
+    private boolean isAligned(FormatTemplate template) {
+        return lengthDelta == 0 || (template.period > 0 && lengthDelta % template.period == 0);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 }
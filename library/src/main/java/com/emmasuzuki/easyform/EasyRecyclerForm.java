@@ -0,0 +1,342 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.util.AttributeSet;
+import android.view.View;
+import android.widget.Button;
+import android.widget.EditText;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A form whose rows are recycled, for forms with too many fields to inflate at once.
+ *
+ * Values and validity live in a {@link FormModel} keyed by field id rather than in views, so the
+ * submit button also reflects rows that are off-screen. A row's text is read from the adapter once,
+ * when its field id first appears; from then on the model's value is used.
+ */
+public class EasyRecyclerForm extends RecyclerView {
+
+    public static final int NO_POSITION = -1;
+
+    private final FormStateDispatcher formStateDispatcher = new FormStateDispatcher();
+    private boolean hasSubmitButton;
+    private int submitButtonId = -1;
+
+    private Adapter<?> adapter;
+    private final AdapterDataObserver dataObserver = new AdapterDataObserver() {
+
+        @Override
+        public void onChanged() {
+            syncModel();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            syncModel();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            syncModel();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            syncModel();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            syncModel();
+        }
+    };
+
+    private FormModel formModel = new FormModel();
+    private final FormRows rows = new FormRows();
+    // Bindings of the views of the current adapter.
+    private final List<FieldBinding> bindings = new ArrayList<>();
+
+    public EasyRecyclerForm(Context context) {
+        super(context);
+    }
+
+    public EasyRecyclerForm(Context context, AttributeSet attrs) {
+        super(context, attrs);
+
+        setPropertyFromAttributes(attrs);
+    }
+
+    public EasyRecyclerForm(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        setPropertyFromAttributes(attrs);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        // The submit button usually lives outside of the list.
+        if (!hasSubmitButton && submitButtonId != -1) {
+            setSubmitButton((Button) getRootView().findViewById(submitButtonId));
+        }
+    }
+
+    // RecyclerView declares the raw type, which an override has to keep.
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        if (this.adapter != null) {
+            this.adapter.unregisterAdapterDataObserver(dataObserver);
+            this.adapter.form = null;
+        }
+
+        // Views of the previous adapter are not bound again.
+        for (FieldBinding binding : bindings) {
+            binding.editText.removeTextChangedListener(binding);
+            binding.field.setTag(R.id.easy_form_field_binding, null);
+        }
+        bindings.clear();
+
+        super.setAdapter(adapter);
+
+        this.adapter = adapter instanceof Adapter ? (Adapter<?>) adapter : null;
+        if (this.adapter != null) {
+            this.adapter.form = this;
+            this.adapter.registerAdapterDataObserver(dataObserver);
+        }
+
+        syncModel();
+    }
+
+    public void setSubmitButton(Button submitButton) {
+        hasSubmitButton = submitButton != null;
+        formStateDispatcher.setSubmitButton(submitButton);
+    }
+
+    // Only called on transitions, and once right away with the current state if known.
+    public void addFormStateListener(FormStateListener listener) {
+        formStateDispatcher.addListener(listener);
+    }
+
+    public void removeFormStateListener(FormStateListener listener) {
+        formStateDispatcher.removeListener(listener);
+    }
+
+    public FormState getFormState() {
+        return formStateDispatcher.getState();
+    }
+
+    // Uses a model that may have been pre-filled and validated off the main thread. Fields whose
+    // id and spec match a row are kept as they are.
+    public void setFormModel(FormModel formModel) {
+        this.formModel = formModel;
+        syncModel();
+    }
+
+    public FormModel getFormModel() {
+        return formModel;
+    }
+
+    // Shows errors on every invalid row, bound or not. Off-screen rows show theirs once scrolled to.
+    public void validate() {
+        rows.showErrors();
+
+        for (FieldBinding binding : bindings) {
+            if (binding.fieldState != null && binding.fieldState.model == formModel) {
+                renderError(binding.field, binding.fieldState);
+            }
+        }
+    }
+
+    public boolean isValid() {
+        return formModel.isValid();
+    }
+
+    public int getFirstInvalidPosition() {
+        return rows.getFirstInvalidPosition();
+    }
+
+    public CharSequence getText(int fieldId) {
+        return formModel.getValue(fieldId);
+    }
+
+    void bindField(View field, int position) {
+        FieldBinding binding = (FieldBinding) field.getTag(R.id.easy_form_field_binding);
+        if (binding == null) {
+            binding = new FieldBinding(field);
+            field.setTag(R.id.easy_form_field_binding, binding);
+            binding.editText.addTextChangedListener(binding);
+            bindings.add(binding);
+        }
+
+        FieldState fieldState = rows.get(position);
+        binding.fieldState = fieldState;
+
+        binding.isBinding = true;
+        if (!TextUtils.equals(binding.editText.getText(), fieldState.getValue())) {
+            binding.editText.setText(fieldState.getValue());
+        }
+        renderError(field, fieldState);
+        binding.isBinding = false;
+        binding.changedFrom = binding.unchangedSuffix = binding.editText.length();
+    }
+
+    private void onFieldEdited(FieldBinding binding, Editable s) {
+        FieldState fieldState = binding.fieldState;
+        if (fieldState == null || fieldState.model != formModel) {
+            return;
+        }
+
+        FormModel timing = FormModel.timing(fieldState);
+        long start = timing != null ? System.nanoTime() : 0;
+
+        // The Editable belongs to a recycled view, so the model keeps a copy.
+        Tracing.beginSection(Tracing.VALIDATE);
+        boolean isValid;
+        try {
+            isValid = fieldState.validate(s.toString(), binding.changedFrom, binding.unchangedSuffix);
+        } finally {
+            Tracing.endSection();
+        }
+        fieldState.errorVisible = !isValid;
+        binding.changedFrom = binding.unchangedSuffix = s.length();
+
+        long validated = timing != null ? System.nanoTime() : 0;
+        if (timing != null) {
+            timing.recordTiming(fieldState, FormMetrics.Phase.VALIDATION, validated - start);
+        }
+
+        Tracing.beginSection(Tracing.RENDER_ERROR);
+        try {
+            renderError(binding.field, fieldState);
+        } finally {
+            Tracing.endSection();
+        }
+
+        if (timing != null) {
+            timing.recordTiming(fieldState, FormMetrics.Phase.RENDER, System.nanoTime() - validated);
+        }
+
+        updateSubmitButton();
+    }
+
+    private void syncModel() {
+        rows.sync(formModel, adapter);
+        updateSubmitButton();
+    }
+
+    private void renderError(View field, FieldState fieldState) {
+        renderError(field, fieldState.errorVisible ? fieldState.getErrorMessage() : null);
+    }
+
+    private void renderError(View field, String errorMessage) {
+        if (field instanceof EasyTextInputLayout) {
+            ((EasyTextInputLayout) field).renderError(errorMessage);
+        } else if (field instanceof EasyFormEditText) {
+            ((EasyFormEditText) field).renderError(errorMessage);
+        } else if (field instanceof EasyAutoCompleteTextView) {
+            ((EasyAutoCompleteTextView) field).renderError(errorMessage);
+        } else if (!TextUtils.equals(((EditText) field).getError(), errorMessage)) {
+            ((EditText) field).setError(errorMessage);
+        }
+    }
+
+    private void setPropertyFromAttributes(AttributeSet attrs) {
+        TypedArray typedArray = getContext().obtainStyledAttributes(attrs, R.styleable.EasyRecyclerForm);
+
+        if (typedArray != null) {
+            submitButtonId = typedArray.getResourceId(R.styleable.EasyRecyclerForm_submitButton, -1);
+
+            typedArray.recycle();
+        }
+    }
+
+    private void updateSubmitButton() {
+        formStateDispatcher.setState(formModel.getFormState(false));
+    }
+
+    /**
+     * Adapter of an EasyRecyclerForm. Call {@link #bindField(View, int)} from onBindViewHolder with
+     * the row's EasyFormEditText, EasyTextInputLayout or EasyAutoCompleteTextView.
+     */
+    public abstract static class Adapter<VH extends ViewHolder> extends RecyclerView.Adapter<VH> {
+
+        private EasyRecyclerForm form;
+
+        // Ids must be unique and stable, so that typed text follows its row across data changes.
+        public abstract int getFieldId(int position);
+
+        // Return null for a row without rules. Rows with the same rules should share one spec.
+        public abstract ValidatorSpec getValidatorSpec(int position);
+
+        // Text of a row the user has not edited yet.
+        public CharSequence getText(int position) {
+            return "";
+        }
+
+        protected final void bindField(View field, int position) {
+            if (form != null) {
+                form.bindField(field, position);
+            }
+        }
+    }
+
+    // One per recycled field view; follows whichever row the view is bound to.
+    private final class FieldBinding implements TextWatcher {
+
+        final View field;
+        final EditText editText;
+        FieldState fieldState;
+        boolean isBinding;
+        // Unedited chars at both ends of the text since the row was bound or last validated.
+        int changedFrom;
+        int unchangedSuffix;
+
+        FieldBinding(View field) {
+            this.field = field;
+            this.editText = field instanceof EasyTextInputLayout
+                    ? ((EasyTextInputLayout) field).getEditText() : (EditText) field;
+        }
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+            changedFrom = Math.min(changedFrom, start);
+            unchangedSuffix = Math.min(unchangedSuffix, s.length() - start - count);
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            if (!isBinding) {
+                onFieldEdited(this, s);
+            }
+        }
+    }
+}
@@ -26,6 +26,8 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.EditText;
 
+import java.util.concurrent.Executor;
+
 import static com.emmasuzuki.easyform.FormValidator.INVALID_VALUE;
 
 public class EasyTextInputLayout extends TextInputLayout implements View.OnFocusChangeListener {
@@ -33,18 +35,24 @@ public class EasyTextInputLayout extends TextInputLayout implements View.OnFocus
     private static final String ANDROID_RES_NAMESPACE = "http://schemas.android.com/apk/res/android";
 
     private EditText easyFormEditText;
-    private FormValidator validator;
+    private ValidatorSpec spec;
+    private FieldState fieldState;
     private EasyFormErrorTextListener easyFormErrorTextListener;
 
     private int editTextInputType;
     private float editTextTextSize;
     private int editTextColor;
-    private String errorMessage;
+    private int debounceMillis = INVALID_VALUE;
 
     private EasyFormErrorTextWatcher textWatcher = new EasyFormErrorTextWatcher(this) {
 
         @Override
-        protected void renderError() {
+        protected CharSequence getFieldText() {
+            return easyFormEditText.getText();
+        }
+
+        @Override
+        protected void renderError(String errorMessage) {
             setError(errorMessage);
             setErrorEnabled(true);
         }
@@ -58,6 +66,9 @@ public class EasyTextInputLayout extends TextInputLayout implements View.OnFocus
 
     public EasyTextInputLayout(Context context) {
         super(context);
+
+        setValidatorSpec(ValidatorSpec.NO_RULES);
+        addEasyEditText();
     }
 
     public EasyTextInputLayout(Context context, AttributeSet attrs) {
@@ -83,16 +94,21 @@ public class EasyTextInputLayout extends TextInputLayout implements View.OnFocus
         }
     }
 
+    FieldState getFieldState() {
+        return fieldState;
+    }
+
     void validate() {
-        boolean isValid = validator.isValid(easyFormEditText.getText());
-        setError(isValid ? null : errorMessage);
-        setErrorEnabled(!isValid);
+        textWatcher.validate(easyFormEditText.getText());
+    }
 
-        if (isValid) {
-            easyFormErrorTextListener.onFilled(this);
-        } else {
-            easyFormErrorTextListener.onError(this);
-        }
+    // Shows the message, or clears the error when null, without running this field's own rules.
+    void renderError(String errorMessage) {
+        textWatcher.showErrorNow(errorMessage);
+    }
+
+    boolean isErrorShown() {
+        return textWatcher.isErrorShown();
     }
 
     @NonNull
@@ -101,42 +117,86 @@ public class EasyTextInputLayout extends TextInputLayout implements View.OnFocus
         return easyFormEditText;
     }
 
+    // Replaces the rules, e.g. with pre-resolved ones from a generated EasyFormBinder. Fields with
+    // equal specs share one spec and validator. Setters below derive a new spec from the current one.
+    public void setValidatorSpec(ValidatorSpec spec) {
+        this.spec = spec;
+
+        if (fieldState == null) {
+            fieldState = new FieldState(getId(), spec, spec.sharedValidator(), spec.getErrorMessage());
+            textWatcher.setFieldState(fieldState);
+        } else {
+            fieldState.setSpec(spec, spec.sharedValidator());
+        }
+    }
+
+    public ValidatorSpec getValidatorSpec() {
+        return spec;
+    }
+
     public ErrorType getErrorType() {
-        return validator.getErrorType();
+        return fieldState.validator.getErrorType();
     }
 
     public void setRegexPattern(String regexPattern) {
-        validator.setRegexPattern(regexPattern);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setRegexPattern(regexPattern).build());
     }
 
     public void setMinValue(int minValue) {
-        validator.setMinValue(minValue);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setMinValue(minValue).build());
     }
 
     public void setMaxValue(int maxValue) {
-        validator.setMaxValue(maxValue);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setMaxValue(maxValue).build());
+    }
+
+    public void setValuePrecision(ValuePrecision valuePrecision) {
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setValuePrecision(valuePrecision).build());
     }
 
     public void setMinChars(int minChars) {
-        validator.setMinChars(minChars);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setMinChars(minChars).build());
     }
 
     public void setMaxChars(int maxChars) {
-        validator.setMaxChars(maxChars);
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setMaxChars(maxChars).build());
     }
 
     public void setErrorMessage(String errorMessage) {
-        this.errorMessage = errorMessage;
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setErrorMessage(errorMessage).build());
     }
 
-    void setShowErrorOn(ShowErrorOn showErrorOn) {
-        if (validator.getErrorType() != ErrorType.NONE) {
-            if (showErrorOn == ShowErrorOn.CHANGE) {
-                easyFormEditText.addTextChangedListener(textWatcher);
-                easyFormEditText.setOnFocusChangeListener(null);
-            } else {
+    public void setErrorMessage(ErrorType errorType, String errorMessage) {
+        setValidatorSpec(new ValidatorSpec.Builder(spec).setErrorMessage(errorType, errorMessage).build());
+    }
+
+    public void setHideErrorWhileIncomplete(boolean hideErrorWhileIncomplete) {
+        textWatcher.setHideErrorWhileIncomplete(hideErrorWhileIncomplete);
+    }
+
+    public void setAsyncValidator(AsyncValidator asyncValidator, String errorMessage) {
+        textWatcher.setAsyncValidator(asyncValidator, errorMessage);
+    }
+
+    public void setAsyncValidatorExecutor(Executor executor) {
+        textWatcher.setAsyncExecutor(executor);
+    }
+
+    public boolean isValidationPending() {
+        return textWatcher.isPending();
+    }
+
+    void setShowErrorOn(ShowErrorOn showErrorOn, int formDebounceMillis) {
+        if (getErrorType() != ErrorType.NONE) {
+            if (showErrorOn == ShowErrorOn.UNFOCUS) {
                 easyFormEditText.removeTextChangedListener(textWatcher);
                 easyFormEditText.setOnFocusChangeListener(this);
+            } else {
+                textWatcher.setDebounceMillis(getDebounceMillis(showErrorOn, formDebounceMillis));
+                textWatcher.resetChanges();
+                easyFormEditText.removeTextChangedListener(textWatcher);
+                easyFormEditText.addTextChangedListener(textWatcher);
+                easyFormEditText.setOnFocusChangeListener(textWatcher.validatesOnUnfocus() ? this : null);
             }
         }
     }
@@ -153,6 +213,14 @@ public class EasyTextInputLayout extends TextInputLayout implements View.OnFocus
         addEasyEditText();
     }
 
+    private int getDebounceMillis(ShowErrorOn showErrorOn, int formDebounceMillis) {
+        if (debounceMillis != INVALID_VALUE) {
+            return debounceMillis;
+        }
+
+        return showErrorOn == ShowErrorOn.DEBOUNCED ? formDebounceMillis : 0;
+    }
+
     private void setPropertyFromAttributes(AttributeSet attrs) {
         editTextInputType = attrs.getAttributeIntValue(ANDROID_RES_NAMESPACE, "inputType", -1);
 
@@ -161,12 +229,15 @@ public class EasyTextInputLayout extends TextInputLayout implements View.OnFocus
         if (typedArray != null) {
             int type = typedArray.getInt(R.styleable.EasyFormEditText_errorType, INVALID_VALUE);
             ErrorType errorType = ErrorType.valueOf(type);
-            errorMessage = typedArray.getString(R.styleable.EasyFormEditText_errorMessage);
+            String errorMessage = typedArray.getString(R.styleable.EasyFormEditText_errorMessage);
             String regexPattern = typedArray.getString(R.styleable.EasyFormEditText_regexPattern);
             float minValue = typedArray.getFloat(R.styleable.EasyFormEditText_minValue, INVALID_VALUE);
             float maxValue = typedArray.getFloat(R.styleable.EasyFormEditText_maxValue, INVALID_VALUE);
+            int valuePrecision = typedArray.getInt(R.styleable.EasyFormEditText_valuePrecision, -1);
             int minChars = typedArray.getInt(R.styleable.EasyFormEditText_minChars, INVALID_VALUE);
             int maxChars = typedArray.getInt(R.styleable.EasyFormEditText_maxChars, INVALID_VALUE);
+            debounceMillis = typedArray.getInt(R.styleable.EasyFormEditText_debounceMillis, INVALID_VALUE);
+            textWatcher.setHideErrorWhileIncomplete(typedArray.getBoolean(R.styleable.EasyFormEditText_hideErrorWhileIncomplete, false));
 
             editTextTextSize = typedArray.getDimensionPixelSize(R.styleable.EasyFormEditText_textSize, 0);
             editTextColor = typedArray.getColor(R.styleable.EasyFormEditText_textColor, 0);
@@ -175,8 +246,21 @@ public class EasyTextInputLayout extends TextInputLayout implements View.OnFocus
                 errorMessage = "Error";
             }
 
-            validator = new FormValidator(errorType, regexPattern, minValue, maxValue, minChars, maxChars);
-            textWatcher.setValidator(validator);
+            setValidatorSpec(new ValidatorSpec.Builder()
+                    .setErrorType(errorType)
+                    .setRegexPattern(regexPattern)
+                    .setMinValue(minValue)
+                    .setMaxValue(maxValue)
+                    .setValuePrecision(ValuePrecision.valueOf(valuePrecision))
+                    .setMinChars(minChars)
+                    .setMaxChars(maxChars)
+                    .setErrorMessage(errorMessage)
+                    .setErrorMessage(ErrorType.EMPTY, typedArray.getString(R.styleable.EasyFormEditText_emptyErrorMessage))
+                    .setErrorMessage(ErrorType.PATTERN, typedArray.getString(R.styleable.EasyFormEditText_patternErrorMessage))
+                    .setErrorMessage(ErrorType.VALUE, typedArray.getString(R.styleable.EasyFormEditText_valueErrorMessage))
+                    .setErrorMessage(ErrorType.CHARS, typedArray.getString(R.styleable.EasyFormEditText_charsErrorMessage))
+                    .setErrorMessage(ErrorType.CARD, typedArray.getString(R.styleable.EasyFormEditText_cardErrorMessage))
+                    .build());
 
             typedArray.recycle();
         }
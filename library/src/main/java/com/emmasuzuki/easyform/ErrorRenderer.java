@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.emmasuzuki.easyform;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the errors of all fields changed since the last frame in one pass, right before the next
+ * frame is drawn. Fields only get here when the error they show actually changes, so typing that
+ * does not change a field's error costs no setError and no layout pass.
+ *
+ * UI thread only.
+ */
+final class ErrorRenderer implements Choreographer.FrameCallback {
+
+    private static ErrorRenderer instance;
+
+    private final List<EasyFormErrorTextWatcher> scheduled = new ArrayList<>();
+    private boolean posted;
+
+    static ErrorRenderer getInstance() {
+        if (instance == null) {
+            instance = new ErrorRenderer();
+        }
+
+        return instance;
+    }
+
+    void schedule(EasyFormErrorTextWatcher watcher) {
+        scheduled.add(watcher);
+
+        if (!posted) {
+            posted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        posted = false;
+
+        // Flushing may schedule again, e.g. from a listener; those wait for the next frame.
+        int count = scheduled.size();
+        for (int i = 0; i < count; i++) {
+            scheduled.get(i).flushError();
+        }
+        scheduled.subList(0, count).clear();
+
+        if (!scheduled.isEmpty() && !posted) {
+            posted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -21,6 +21,8 @@ public enum ErrorType {
     PATTERN,
     VALUE,
     CHARS,
+    CARD,
+    ITEM,
     NONE;
 
     public static ErrorType valueOf(int value) {
@@ -48,6 +50,12 @@ public enum ErrorType {
             case CHARS:
                 return "Chars";
 
+            case CARD:
+                return "Card";
+
+            case ITEM:
+                return "Item";
+
             default:
                 return "None";
         }
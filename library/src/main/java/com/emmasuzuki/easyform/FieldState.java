@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+/**
+ * Value, rules and validation result of one field. Widgets are bindings over a FieldState, and a
+ * FieldState can also be created and validated without any view through {@link FormModel}.
+ *
+ * Like FormModel, a FieldState must only be used from one thread at a time.
+ */
+public final class FieldState {
+
+    int id;
+    ValidatorSpec spec;
+    // Null for a field without rules, which is always valid. May be shared by fields of equal specs.
+    FormValidator validator;
+    String defaultErrorMessage;
+
+    FormModel model;
+    int slot = -1;
+    // Whether the error is to be shown; kept here so recycled or recreated views can restore it.
+    boolean errorVisible;
+    // This field's histograms in metrics, resolved on first use.
+    FormMetrics metrics;
+    LatencyHistogram[] histograms;
+
+    private CharSequence value = "";
+    // Incremental state of the rules over this field's text, kept per field as validators are shared.
+    private Rule.Scratch scratch;
+    // Hash of the value last validated, so a saved result can be matched to restored text.
+    private int valueHash;
+    private boolean validated;
+    private boolean valid;
+    private boolean pending;
+    private boolean incomplete;
+    private String errorMessage;
+
+    FieldState(int id, ValidatorSpec spec, FormValidator validator, String defaultErrorMessage) {
+        this.id = id;
+        this.spec = spec;
+        this.validator = validator;
+        this.defaultErrorMessage = defaultErrorMessage;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public ValidatorSpec getSpec() {
+        return spec;
+    }
+
+    public CharSequence getValue() {
+        return value;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    // Message of the failed rule, or null while valid.
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    boolean isIncomplete() {
+        return incomplete;
+    }
+
+    boolean validate(CharSequence value, int changedFrom) {
+        return validate(value, changedFrom, 0);
+    }
+
+    // Since this field was last validated, only the text from changedFrom up to its last
+    // unchangedSuffix chars was edited. Rules carry their state on from there.
+    boolean validate(CharSequence value, int changedFrom, int unchangedSuffix) {
+        this.value = value;
+        this.valueHash = hash(value);
+        this.validated = true;
+
+        if (validator == null) {
+            incomplete = false;
+            setResult(true, null);
+            return true;
+        }
+
+        if (scratch == null) {
+            scratch = new Rule.Scratch();
+        }
+        scratch.edited(changedFrom, unchangedSuffix);
+
+        boolean isValid = validator.isValid(value, scratch);
+        incomplete = validator.isIncomplete();
+
+        String message = null;
+        if (!isValid) {
+            message = validator.getErrorMessage();
+            if (message == null) {
+                message = defaultErrorMessage;
+            }
+        }
+
+        setResult(isValid, message);
+        return isValid;
+    }
+
+    // Swaps the rules of a widget's field, keeping its value and place in the form. The result is
+    // updated on the next validation.
+    void setSpec(ValidatorSpec spec, FormValidator validator) {
+        this.spec = spec;
+        this.validator = validator;
+        this.defaultErrorMessage = spec.getErrorMessage();
+    }
+
+    boolean isValidated() {
+        return validated;
+    }
+
+    // Identifies the validated value under the current rules, to be saved with the result.
+    int getResultHash() {
+        return hash(spec, valueHash);
+    }
+
+    // Takes a result saved for the same rules and value instead of validating again.
+    void restoreResult(CharSequence value, boolean isValid, String errorMessage) {
+        if (scratch != null) {
+            scratch.edited(0, 0);
+        }
+
+        this.value = value;
+        this.valueHash = hash(value);
+        this.validated = true;
+        incomplete = false;
+        setResult(isValid, errorMessage);
+    }
+
+    // Same as the value's String.hashCode, stable across processes, without copying an Editable.
+    static int hash(CharSequence value) {
+        int hash = 0;
+        for (int i = 0; i < value.length(); i++) {
+            hash = 31 * hash + value.charAt(i);
+        }
+
+        return hash;
+    }
+
+    static int hash(ValidatorSpec spec, int valueHash) {
+        return 31 * (spec != null ? spec.hashCode() : 0) + valueHash;
+    }
+
+    void setResult(boolean isValid, String errorMessage) {
+        this.errorMessage = errorMessage;
+
+        if (valid != isValid) {
+            valid = isValid;
+            if (model != null) {
+                model.onValidityChanged(isValid);
+            }
+        }
+    }
+
+    void setPending(boolean isPending) {
+        if (pending != isPending) {
+            pending = isPending;
+            if (model != null) {
+                model.onPendingChanged(isPending);
+            }
+        }
+    }
+}
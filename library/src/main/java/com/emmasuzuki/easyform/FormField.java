@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.emmasuzuki.easyform;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static com.emmasuzuki.easyform.FormValidator.INVALID_VALUE;
+
+/**
+ * Declares a field of a form in Java instead of XML attributes. easyform-compiler generates a
+ * {@code <Class>_EasyFormBinder} for each class with annotated fields; call
+ * {@link EasyFormBinder#bind(Object, EasyForm)} to look the views up, give them their rules and
+ * register them with the form.
+ *
+ * The annotated field must be an EasyFormEditText, EasyTextInputLayout or EasyAutoCompleteTextView
+ * and must not be private or static. Attributes mirror the XML ones; unset values are ignored.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface FormField {
+
+    // View id, e.g. R.id.email.
+    int value();
+
+    ErrorType errorType() default ErrorType.NONE;
+
+    String regexPattern() default "";
+
+    float minValue() default INVALID_VALUE;
+
+    float maxValue() default INVALID_VALUE;
+
+    ValuePrecision valuePrecision() default ValuePrecision.DOUBLE;
+
+    int minChars() default INVALID_VALUE;
+
+    int maxChars() default INVALID_VALUE;
+
+    String errorMessage() default "Error";
+
+    String emptyErrorMessage() default "";
+
+    String patternErrorMessage() default "";
+
+    String valueErrorMessage() default "";
+
+    String charsErrorMessage() default "";
+
+    String cardErrorMessage() default "";
+
+    // The items of an item errorType are those of the EasyAutoCompleteTextView.
+    String itemErrorMessage() default "";
+}
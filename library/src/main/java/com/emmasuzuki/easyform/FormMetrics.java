@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.emmasuzuki.easyform;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opt-in timings of validation, error rendering and formatting per field, kept as histograms to
+ * pull and upload, and optionally reported to a {@link FormMetricsListener} as they happen.
+ * Without a FormMetrics set on the form, fields skip timing altogether.
+ *
+ * Recording happens on the UI thread; read and reset from the UI thread as well.
+ */
+public final class FormMetrics {
+
+    public enum Phase {
+        VALIDATION, RENDER, FORMAT
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Map<Integer, LatencyHistogram[]> histograms = new HashMap<>();
+    private FormMetricsListener listener;
+
+    public void setListener(FormMetricsListener listener) {
+        this.listener = listener;
+    }
+
+    // Copy of the field's histogram, or an empty one if nothing was recorded.
+    public LatencyHistogram getHistogram(int fieldId, Phase phase) {
+        LatencyHistogram[] fieldHistograms = histograms.get(fieldId);
+        return fieldHistograms != null ? fieldHistograms[phase.ordinal()].copy() : new LatencyHistogram();
+    }
+
+    public List<Integer> getFieldIds() {
+        return new ArrayList<>(histograms.keySet());
+    }
+
+    // Starts a new window, e.g. right after the histograms were uploaded.
+    public void reset() {
+        for (LatencyHistogram[] fieldHistograms : histograms.values()) {
+            for (LatencyHistogram histogram : fieldHistograms) {
+                histogram.reset();
+            }
+        }
+    }
+
+    void record(FieldState fieldState, Phase phase, long nanos) {
+        // The field keeps its histograms, so recording needs no lookup after the first time.
+        if (fieldState.metrics != this || fieldState.histograms == null) {
+            fieldState.metrics = this;
+            fieldState.histograms = getHistograms(fieldState.id);
+        }
+
+        fieldState.histograms[phase.ordinal()].record(nanos);
+
+        if (listener != null) {
+            listener.onFieldMeasured(fieldState.id, phase, nanos);
+        }
+    }
+
+    private LatencyHistogram[] getHistograms(int fieldId) {
+        LatencyHistogram[] fieldHistograms = histograms.get(fieldId);
+        if (fieldHistograms == null) {
+            fieldHistograms = new LatencyHistogram[PHASES.length];
+            for (int i = 0; i < PHASES.length; i++) {
+                fieldHistograms[i] = new LatencyHistogram();
+            }
+            histograms.put(fieldId, fieldHistograms);
+        }
+
+        return fieldHistograms;
+    }
+}
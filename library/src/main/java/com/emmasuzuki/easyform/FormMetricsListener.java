@@ -0,0 +1,24 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.emmasuzuki.easyform;
+
+/**
+ * Receives the time spent on each field, on the UI thread, right after it is measured.
+ */
+public interface FormMetricsListener {
+
+    void onFieldMeasured(int fieldId, FormMetrics.Phase phase, long nanos);
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Headless form: the fields' values, rules and validity, keyed by field id. It needs no views, so a
+ * form can be pre-filled and validated on a background thread and handed to the UI afterwards.
+ * EasyForm and EasyRecyclerForm keep their state in one. It uses no Android classes, so it also
+ * runs in plain JVM tests.
+ *
+ * Not thread-safe; use it from one thread at a time.
+ */
+public class FormModel {
+
+    // Fields are addressed by slot, and slots of removed fields are reused. Validity is kept as
+    // running counts, so that a validity flip and the form-level checks are constant time.
+    private final Map<Integer, FieldState> fieldsById = new HashMap<>();
+    private FieldState[] fields = new FieldState[8];
+    private int slotCount;
+    private int[] freeSlots = new int[0];
+    private int freeSlotCount;
+    private int fieldCount;
+    private int invalidCount;
+    private int pendingCount;
+
+    // Fields with the same spec share one validator.
+    private final Map<ValidatorSpec, FormValidator> validators = new HashMap<>();
+    // Set while a form restores its views' text, whose results are restored rather than validated.
+    boolean restoring;
+    // Both null unless timings are wanted.
+    FormMetrics metrics;
+    FrameBudgetWatchdog watchdog;
+
+    // Adds an empty field with the given rules, or replaces the field with the same id. A null spec
+    // is a field without rules.
+    public FieldState addField(int id, ValidatorSpec spec) {
+        FieldState field = new FieldState(id, spec, getValidator(spec), spec != null ? spec.errorMessage : null);
+        addField(field);
+        field.validate("", 0);
+        return field;
+    }
+
+    public void removeField(int id) {
+        FieldState field = fieldsById.remove(id);
+        if (field == null) {
+            return;
+        }
+
+        int slot = field.slot;
+        if (!field.isValid()) {
+            invalidCount--;
+        }
+        if (field.isPending()) {
+            pendingCount--;
+        }
+
+        field.model = null;
+        field.slot = -1;
+        fields[slot] = null;
+        fieldCount--;
+
+        if (freeSlotCount == freeSlots.length) {
+            int[] grown = new int[Math.max(4, freeSlotCount * 2)];
+            System.arraycopy(freeSlots, 0, grown, 0, freeSlotCount);
+            freeSlots = grown;
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    public FieldState getField(int id) {
+        return fieldsById.get(id);
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    // Sets the value of a field and validates it. Returns false for an unknown id too.
+    public boolean setValue(int id, CharSequence value) {
+        FieldState field = getField(id);
+        return field != null && field.validate(value != null ? value : "", 0);
+    }
+
+    public CharSequence getValue(int id) {
+        FieldState field = getField(id);
+        return field != null ? field.getValue() : null;
+    }
+
+    // Validates every field against its current value.
+    public boolean validate() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (fields[slot] != null) {
+                fields[slot].validate(fields[slot].getValue(), 0);
+            }
+        }
+
+        return isValid();
+    }
+
+    public boolean isValid() {
+        return invalidCount == 0;
+    }
+
+    public boolean isValidationPending() {
+        return pendingCount > 0;
+    }
+
+    // What the submit button shows. PENDING while any field waits for its AsyncValidator. With
+    // lastFieldOnSubmit, as for showErrorOn="unfocus", the last field left is only checked on
+    // submit, so a form with a single invalid field counts as VALID.
+    public FormState getFormState(boolean lastFieldOnSubmit) {
+        if (isValid()) {
+            return FormState.VALID;
+        } else if (isValidationPending()) {
+            return FormState.PENDING;
+        }
+
+        return lastFieldOnSubmit && invalidCount <= 1 ? FormState.VALID : FormState.INVALID;
+    }
+
+    public void setFormMetrics(FormMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public FormMetrics getFormMetrics() {
+        return metrics;
+    }
+
+    public void setFrameBudgetWatchdog(FrameBudgetWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    public FrameBudgetWatchdog getFrameBudgetWatchdog() {
+        return watchdog;
+    }
+
+    int getSlotCount() {
+        return slotCount;
+    }
+
+    // Null for a free slot.
+    FieldState getFieldAt(int slot) {
+        return fields[slot];
+    }
+
+    void addField(FieldState field) {
+        removeField(field.id);
+
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            if (slotCount == fields.length) {
+                FieldState[] grown = new FieldState[slotCount * 2];
+                System.arraycopy(fields, 0, grown, 0, slotCount);
+                fields = grown;
+            }
+            slot = slotCount++;
+        }
+
+        field.model = this;
+        field.slot = slot;
+        field.histograms = null;
+        fields[slot] = field;
+        fieldsById.put(field.id, field);
+        fieldCount++;
+
+        if (!field.isValid()) {
+            invalidCount++;
+        }
+        if (field.isPending()) {
+            pendingCount++;
+        }
+    }
+
+    void onValidityChanged(boolean isValid) {
+        invalidCount += isValid ? -1 : 1;
+    }
+
+    void onPendingChanged(boolean isPending) {
+        pendingCount += isPending ? 1 : -1;
+    }
+
+    // The field's model if its work is to be timed, otherwise null so that callers skip timing.
+    static FormModel timing(FieldState field) {
+        FormModel model = field != null ? field.model : null;
+        return model != null && (model.metrics != null || model.watchdog != null) ? model : null;
+    }
+
+    void recordTiming(FieldState field, FormMetrics.Phase phase, long nanos) {
+        if (metrics != null) {
+            metrics.record(field, phase, nanos);
+        }
+        if (watchdog != null) {
+            watchdog.record(field, phase, nanos);
+        }
+    }
+
+    private FormValidator getValidator(ValidatorSpec spec) {
+        if (spec == null) {
+            return null;
+        }
+
+        FormValidator validator = validators.get(spec);
+        if (validator == null) {
+            validator = spec.newValidator();
+            validators.put(spec, validator);
+        }
+
+        return validator;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.util.BitSet;
+
+/**
+ * Field of each adapter position of an EasyRecyclerForm. Kept out of the view, so that rows are
+ * mapped to fields the same way in plain JVM tests.
+ */
+final class FormRows {
+
+    private FieldState[] rows = new FieldState[0];
+
+    // Adds fields to the model for new ids and drops fields of removed rows. A row's text is read
+    // from the adapter once, when its id first appears; a row whose spec changed keeps its value.
+    void sync(FormModel formModel, EasyRecyclerForm.Adapter<?> adapter) {
+        int count = adapter != null ? adapter.getItemCount() : 0;
+        FieldState[] synced = new FieldState[count];
+
+        for (int position = 0; position < count; position++) {
+            int fieldId = adapter.getFieldId(position);
+            ValidatorSpec spec = adapter.getValidatorSpec(position);
+            FieldState fieldState = formModel.getField(fieldId);
+
+            if (fieldState == null || fieldState.spec != spec) {
+                CharSequence value = fieldState != null ? fieldState.getValue() : adapter.getText(position);
+                boolean errorVisible = fieldState != null && fieldState.errorVisible;
+
+                fieldState = formModel.addField(fieldId, spec);
+                fieldState.validate(value != null ? value : "", 0);
+                fieldState.errorVisible = errorVisible;
+            }
+
+            synced[position] = fieldState;
+        }
+
+        rows = synced;
+
+        if (formModel.getFieldCount() > count) {
+            BitSet used = new BitSet(formModel.getSlotCount());
+            for (FieldState row : rows) {
+                used.set(row.slot);
+            }
+
+            for (int slot = 0; slot < formModel.getSlotCount(); slot++) {
+                FieldState fieldState = formModel.getFieldAt(slot);
+                if (fieldState != null && !used.get(slot)) {
+                    formModel.removeField(fieldState.id);
+                }
+            }
+        }
+    }
+
+    int size() {
+        return rows.length;
+    }
+
+    FieldState get(int position) {
+        return rows[position];
+    }
+
+    int getFirstInvalidPosition() {
+        for (int position = 0; position < rows.length; position++) {
+            if (!rows[position].isValid()) {
+                return position;
+            }
+        }
+
+        return EasyRecyclerForm.NO_POSITION;
+    }
+
+    // Errors of invalid rows are shown, bound or not.
+    void showErrors() {
+        for (FieldState row : rows) {
+            row.errorVisible = !row.isValid();
+        }
+    }
+}
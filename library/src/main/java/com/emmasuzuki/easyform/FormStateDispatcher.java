@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.emmasuzuki.easyform;
+
+import android.widget.Button;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Form state shared by EasyForm and EasyRecyclerForm. Updates that keep the state are dropped, so
+ * listeners, including the one driving the submit button, only see transitions.
+ */
+final class FormStateDispatcher {
+
+    private FormState state;
+    private Button submitButton;
+    private final List<FormStateListener> listeners = new ArrayList<>();
+
+    private final FormStateListener submitButtonBinding = new FormStateListener() {
+
+        @Override
+        public void onFormStateChanged(FormState state) {
+            if (submitButton != null) {
+                boolean enable = state == FormState.VALID;
+                submitButton.setEnabled(enable);
+                submitButton.setAlpha(enable ? 1f : 0.5f);
+            }
+        }
+    };
+
+    FormStateDispatcher() {
+        listeners.add(submitButtonBinding);
+    }
+
+    FormState getState() {
+        return state;
+    }
+
+    void setSubmitButton(Button submitButton) {
+        this.submitButton = submitButton;
+
+        if (state != null) {
+            submitButtonBinding.onFormStateChanged(state);
+        }
+    }
+
+    // A new listener is told the current state right away, if there is one yet.
+    void addListener(FormStateListener listener) {
+        listeners.add(listener);
+
+        if (state != null) {
+            listener.onFormStateChanged(state);
+        }
+    }
+
+    void removeListener(FormStateListener listener) {
+        listeners.remove(listener);
+    }
+
+    void setState(FormState state) {
+        if (this.state == state) {
+            return;
+        }
+
+        this.state = state;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onFormStateChanged(state);
+        }
+    }
+}
@@ -16,106 +16,400 @@
 
 package com.emmasuzuki.easyform;
 
-import android.text.TextUtils;
-
 import java.util.regex.Pattern;
 
+/**
+ * The rules of one field, compiled into a chain that stops at the first failing rule. Cheap rules
+ * run first; the chain then re-orders itself by observed cost and failure rate, so the common
+ * failure is found early. When several rules fail, the message shown is that of the first failing
+ * rule in static order, so it does not change with the chain's order.
+ */
 class FormValidator {
 
     static final int INVALID_VALUE = -1;
 
-    private ErrorType errorType = ErrorType.NONE;
-    private String regexPattern = "";
-    private float minValue = -Float.MAX_VALUE;
-    private float maxValue = Float.MAX_VALUE;
+    private static final Pattern EMPTY_PATTERN = PatternCache.get("");
+    private static final Rule[] NO_RULES = new Rule[0];
+    // Rules are timed on one validation out of SAMPLE_INTERVAL, and re-ordered every REORDER_INTERVAL.
+    private static final int SAMPLE_INTERVAL = 8;
+    private static final int REORDER_INTERVAL = 64;
+    private static final float NANOS_PER_COST = 50f;
+
+    private Pattern pattern = EMPTY_PATTERN;
+    // Bounds are kept as the decimal that was written in xml or code, i.e. 0.1f is read as 0.1.
+    private double minValue = -Float.MAX_VALUE;
+    private double maxValue = Float.MAX_VALUE;
     private int minChars = 0;
     private int maxChars = Integer.MAX_VALUE;
+    private ValuePrecision valuePrecision = ValuePrecision.DOUBLE;
+    private ItemSet itemSet = ItemSet.EMPTY;
+    private final String[] errorMessages = new String[ErrorType.values().length];
+
+    private Rule[] rules = NO_RULES;
+    // The same rules in static order, which picks the reported rule when several fail.
+    private Rule[] declaredRules = NO_RULES;
+    // Incremental state for callers without their own, see isValid(CharSequence, Rule.Scratch).
+    private final Rule.Scratch scratch = new Rule.Scratch();
+    private Rule failedRule;
+    private boolean incomplete;
+
+    // Observed statistics, parallel to rules. Only kept for chains of two or more rules.
+    private int validationCount;
+    private int[] evaluations;
+    private int[] failures;
+    private float[] averageNanos;
 
     FormValidator() {}
 
     FormValidator(ErrorType errorType, String regexPattern, float minValue, float maxValue, int minChars, int maxChars) {
-        this.errorType = errorType;
+        if (errorType != null && errorType != ErrorType.NONE) {
+            putRule(createRule(errorType));
+        }
 
         if (minValue != INVALID_VALUE || maxValue != INVALID_VALUE) {
-            this.errorType = ErrorType.VALUE;
-            this.minValue = Math.max(-Float.MAX_VALUE, minValue);
-            this.maxValue = maxValue == INVALID_VALUE ? Float.MAX_VALUE : maxValue;
+            this.minValue = toDouble(Math.max(-Float.MAX_VALUE, minValue));
+            this.maxValue = toDouble(maxValue == INVALID_VALUE ? Float.MAX_VALUE : maxValue);
+            putRule(createRule(ErrorType.VALUE));
         }
 
         if (minChars != INVALID_VALUE || maxChars != INVALID_VALUE) {
-            this.errorType = ErrorType.CHARS;
             this.minChars = Math.max(0, minChars);
             this.maxChars = maxChars == INVALID_VALUE ? Integer.MAX_VALUE : maxChars;
+            putRule(createRule(ErrorType.CHARS));
         }
 
         if (regexPattern != null) {
-            this.errorType = ErrorType.PATTERN;
-            this.regexPattern = regexPattern;
+            this.pattern = PatternCache.get(regexPattern);
+            putRule(createRule(ErrorType.PATTERN));
         }
     }
 
+    // Same rules and messages as the prototype, sharing its immutable Rule objects, with fresh
+    // per-field state.
+    FormValidator(FormValidator prototype) {
+        this.pattern = prototype.pattern;
+        this.minValue = prototype.minValue;
+        this.maxValue = prototype.maxValue;
+        this.minChars = prototype.minChars;
+        this.maxChars = prototype.maxChars;
+        this.valuePrecision = prototype.valuePrecision;
+        this.itemSet = prototype.itemSet;
+        System.arraycopy(prototype.errorMessages, 0, errorMessages, 0, errorMessages.length);
+        this.rules = prototype.rules.clone();
+        this.declaredRules = prototype.declaredRules;
+        resetStatistics();
+    }
+
     boolean isValid(CharSequence s) {
-        boolean hasError = false;
+        return isValid(s, 0);
+    }
 
-        switch (errorType) {
-            case EMPTY:
-                hasError = TextUtils.isEmpty(s.toString());
-                break;
+    // changedFrom is the first index edited since the previous call, so pattern and card rules can resume
+    // from there instead of rescanning the text.
+    boolean isValid(CharSequence s, int changedFrom) {
+        scratch.edited(changedFrom, 0);
+        return isValid(s, scratch);
+    }
 
-            case PATTERN:
-                hasError = !Pattern.compile(regexPattern).matcher(s.toString()).matches();
-                break;
+    // Runs the chain on a field's own incremental state, already told what changed since the field's
+    // previous validation. The rules and their order are shared, the state is not.
+    boolean isValid(CharSequence s, Rule.Scratch scratch) {
+        failedRule = null;
+        scratch.incomplete = false;
 
-            case VALUE:
-                try {
-                    float value = Float.parseFloat(s.toString());
-                    hasError = value < minValue || value > maxValue;
-                } catch (Exception e) {
-                    hasError = true;
-                }
-                break;
+        if (rules.length == 1) {
+            if (!rules[0].isValid(s, scratch)) {
+                failedRule = rules[0];
+            }
+            incomplete = scratch.incomplete;
+            return failedRule == null;
+        }
 
-            case CHARS:
-                hasError = s.length() < minChars || s.length() > maxChars;
-                break;
+        boolean sample = validationCount++ % SAMPLE_INTERVAL == 0;
 
-            default:
+        for (int i = 0; i < rules.length; i++) {
+            long start = sample ? System.nanoTime() : 0;
+            boolean isValid = rules[i].isValid(s, scratch);
+
+            if (sample) {
+                averageNanos[i] = averageNanos[i] * 0.75f + (System.nanoTime() - start) * 0.25f;
+            }
+
+            evaluations[i]++;
+            if (!isValid) {
+                failures[i]++;
+                failedRule = rules[i];
+                findFirstDeclaredFailure(s, scratch, i);
                 break;
+            }
+        }
+
+        if (rules.length > 1 && validationCount % REORDER_INTERVAL == 0) {
+            reorder();
+        }
+
+        incomplete = scratch.incomplete;
+        return failedRule == null;
+    }
+
+    // True when the last validation failed on a rule that more typing could still satisfy, like a
+    // pattern prefix or too few chars.
+    boolean isIncomplete() {
+        return failedRule != null && incomplete;
+    }
+
+    // Message of the rule that failed the last validation, or null to use the field's errorMessage.
+    String getErrorMessage() {
+        return failedRule == null ? null : errorMessages[failedRule.errorType.ordinal()];
+    }
+
+    // Rule with the highest observed cost, or the only rule of a single-rule chain.
+    ErrorType getSlowestRuleType() {
+        if (rules.length == 0) {
+            return ErrorType.NONE;
+        } else if (averageNanos == null) {
+            return rules[0].errorType;
+        }
+
+        int slowest = 0;
+        for (int i = 1; i < rules.length; i++) {
+            if (averageNanos[i] > averageNanos[slowest]) {
+                slowest = i;
+            }
         }
 
-        return !hasError;
+        return rules[slowest].errorType;
     }
 
+    Pattern getPattern() {
+        return pattern;
+    }
+
+    // A chain reports the rule type that used to win when only one rule was kept: pattern, chars, value.
     ErrorType getErrorType() {
-        return errorType;
+        if (hasRule(ErrorType.PATTERN)) {
+            return ErrorType.PATTERN;
+        } else if (hasRule(ErrorType.CHARS)) {
+            return ErrorType.CHARS;
+        } else if (hasRule(ErrorType.VALUE)) {
+            return ErrorType.VALUE;
+        }
+
+        return rules.length > 0 ? rules[0].errorType : ErrorType.NONE;
     }
 
+    boolean hasRule(ErrorType errorType) {
+        return indexOf(errorType) >= 0;
+    }
+
+    Rule[] getRules() {
+        return rules;
+    }
+
+    // Replaces the whole chain with a single rule of the given type.
     void setErrorType(ErrorType errorType) {
-        this.errorType = errorType;
+        rules = NO_RULES;
+        declaredRules = NO_RULES;
+
+        if (errorType != null && errorType != ErrorType.NONE) {
+            putRule(createRule(errorType));
+        }
+    }
+
+    void setErrorMessage(ErrorType errorType, String errorMessage) {
+        errorMessages[errorType.ordinal()] = errorMessage;
     }
 
     void setRegexPattern(String regexPattern) {
-        errorType = ErrorType.PATTERN;
-        this.regexPattern = regexPattern;
+        this.pattern = PatternCache.get(regexPattern);
+        putRule(createRule(ErrorType.PATTERN));
     }
 
     void setMinValue(float minValue) {
-        errorType = ErrorType.VALUE;
-        this.minValue = minValue;
+        this.minValue = toDouble(minValue);
+        putRule(createRule(ErrorType.VALUE));
     }
 
     void setMaxValue(float maxValue) {
-        errorType = ErrorType.VALUE;
-        this.maxValue = maxValue;
+        this.maxValue = toDouble(maxValue);
+        putRule(createRule(ErrorType.VALUE));
+    }
+
+    void setValuePrecision(ValuePrecision valuePrecision) {
+        this.valuePrecision = valuePrecision;
+
+        if (hasRule(ErrorType.VALUE)) {
+            putRule(createRule(ErrorType.VALUE));
+        }
+    }
+
+    // Without items, no text is one of them.
+    void setItemSet(ItemSet itemSet) {
+        this.itemSet = itemSet != null ? itemSet : ItemSet.EMPTY;
+
+        if (hasRule(ErrorType.ITEM)) {
+            putRule(createRule(ErrorType.ITEM));
+        }
     }
 
     void setMinChars(int minChars) {
-        errorType = ErrorType.CHARS;
         this.minChars = minChars;
+        putRule(createRule(ErrorType.CHARS));
     }
 
     void setMaxChars(int maxChars) {
-        errorType = ErrorType.CHARS;
         this.maxChars = maxChars;
+        putRule(createRule(ErrorType.CHARS));
+    }
+
+    private Rule createRule(ErrorType errorType) {
+        switch (errorType) {
+            case EMPTY:
+                return new Rule.Empty();
+
+            case PATTERN:
+                return new Rule.Regex(pattern);
+
+            case VALUE:
+                return new Rule.Value(valuePrecision, minValue, maxValue);
+
+            case CARD:
+                return new Rule.Card();
+
+            case ITEM:
+                return new Rule.Item(itemSet);
+
+            default:
+                return new Rule.Chars(minChars, maxChars);
+        }
+    }
+
+    // Adds the rule, or replaces the rule of the same type, keeping the chain ordered by static cost.
+    private void putRule(Rule rule) {
+        int index = indexOf(rule.errorType);
+        Rule[] updated;
+
+        if (index >= 0) {
+            updated = declaredRules.clone();
+            updated[index] = rule;
+        } else {
+            updated = new Rule[declaredRules.length + 1];
+            System.arraycopy(declaredRules, 0, updated, 0, declaredRules.length);
+            updated[declaredRules.length] = rule;
+        }
+
+        for (int i = 1; i < updated.length; i++) {
+            for (int j = i; j > 0 && updated[j - 1].cost > updated[j].cost; j--) {
+                Rule swap = updated[j];
+                updated[j] = updated[j - 1];
+                updated[j - 1] = swap;
+            }
+        }
+
+        declaredRules = updated;
+        rules = updated.clone();
+        resetStatistics();
+    }
+
+    private int indexOf(ErrorType errorType) {
+        for (int i = 0; i < declaredRules.length; i++) {
+            if (declaredRules[i].errorType == errorType) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void resetStatistics() {
+        validationCount = 0;
+
+        if (rules.length < 2) {
+            evaluations = null;
+            failures = null;
+            averageNanos = null;
+            return;
+        }
+
+        evaluations = new int[rules.length];
+        failures = new int[rules.length];
+        averageNanos = new float[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            averageNanos[i] = rules[i].cost * NANOS_PER_COST;
+        }
+    }
+
+    // failedRule failed at index failed of the chain, and every rule before it passed. Rules declared
+    // before failedRule that the chain has not run yet are checked in static order, and the first
+    // one failing is reported instead. They are not timed or counted.
+    private void findFirstDeclaredFailure(CharSequence s, Rule.Scratch scratch, int failed) {
+        boolean failedIncomplete = scratch.incomplete;
+
+        for (int i = 0; declaredRules[i] != failedRule; i++) {
+            Rule rule = declaredRules[i];
+            if (indexOf(rule, failed) >= 0) {
+                continue;
+            }
+
+            scratch.incomplete = false;
+            if (!rule.isValid(s, scratch)) {
+                failedRule = rule;
+                return;
+            }
+        }
+
+        scratch.incomplete = failedIncomplete;
+    }
+
+    private int indexOf(Rule rule, int end) {
+        for (int i = 0; i < end; i++) {
+            if (rules[i] == rule) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    // Orders rules by expected cost per detected failure, cost / P(fail), which minimises the
+    // expected work of a short-circuiting chain. Counts are halved so the order follows recent input.
+    private void reorder() {
+        for (int i = 1; i < rules.length; i++) {
+            for (int j = i; j > 0 && rank(j - 1) > rank(j); j--) {
+                swap(j - 1, j);
+            }
+        }
+
+        for (int i = 0; i < rules.length; i++) {
+            evaluations[i] >>= 1;
+            failures[i] >>= 1;
+        }
+    }
+
+    private float rank(int index) {
+        float failureRate = (failures[index] + 1f) / (evaluations[index] + 2f);
+        return averageNanos[index] / failureRate;
+    }
+
+    private void swap(int i, int j) {
+        Rule rule = rules[i];
+        rules[i] = rules[j];
+        rules[j] = rule;
+
+        int count = evaluations[i];
+        evaluations[i] = evaluations[j];
+        evaluations[j] = count;
+
+        count = failures[i];
+        failures[i] = failures[j];
+        failures[j] = count;
+
+        float nanos = averageNanos[i];
+        averageNanos[i] = averageNanos[j];
+        averageNanos[j] = nanos;
+    }
+
+    private static double toDouble(float value) {
+        return Double.parseDouble(Float.toString(value));
     }
 }
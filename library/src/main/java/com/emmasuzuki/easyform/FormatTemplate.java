@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019. Emma Suzuki <emma11suzuki@gmail.com>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+/**
+ * As-you-type layout such as "(###) ###-####", where '#' is a digit slot and any other char is a
+ * literal inserted in front of the next digit.
+ */
+final class FormatTemplate {
+
+    static final char DIGIT = '#';
+
+    final String pattern;
+    final String leadingDigits;
+    final int length;
+    final int maxDigits;
+    // Group length for evenly grouped layouts (e.g. "#### ####"), otherwise 0.
+    final int period;
+
+    private final boolean[] digitSlots;
+
+    FormatTemplate(String pattern) {
+        this("", pattern);
+    }
+
+    FormatTemplate(String leadingDigits, String pattern) {
+        this.pattern = pattern;
+        this.leadingDigits = leadingDigits;
+        this.length = pattern.length();
+
+        digitSlots = new boolean[length];
+        int digits = 0;
+        for (int i = 0; i < length; i++) {
+            digitSlots[i] = pattern.charAt(i) == DIGIT;
+            digits += digitSlots[i] ? 1 : 0;
+        }
+        maxDigits = digits;
+        period = findPeriod(pattern);
+    }
+
+    boolean isDigitSlot(int pos) {
+        return digitSlots[pos];
+    }
+
+    char literalAt(int pos) {
+        return pattern.charAt(pos);
+    }
+
+    private static int findPeriod(String pattern) {
+        int separator = pattern.indexOf(' ');
+        if (separator <= 0) {
+            return 0;
+        }
+
+        int period = separator + 1;
+        for (int i = 0; i < pattern.length(); i++) {
+            boolean separatorSlot = i % period == separator;
+            if (separatorSlot != (pattern.charAt(i) == ' ')) {
+                return 0;
+            }
+        }
+
+        return period;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.emmasuzuki.easyform;
+
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Logs a warning when the library's work for a single keystroke on a field (validation, error
+ * rendering and formatting together) takes more than a share of the frame budget. The warning
+ * names the field and the rule type that has been slowest on it, so the offending rule can be found.
+ *
+ * Work is summed until the UI thread gets back to its message loop, which is what delays the frame.
+ */
+public final class FrameBudgetWatchdog {
+
+    private static final String TAG = "EasyForm";
+    private static final long DEFAULT_FRAME_NANOS = 16666667L;
+    private static final FormMetrics.Phase[] PHASES = FormMetrics.Phase.values();
+
+    private final float budgetShare;
+    private long frameNanos = DEFAULT_FRAME_NANOS;
+    Resources resources;
+
+    private Handler handler;
+    private FieldState keystrokeField;
+    private final long[] keystrokeNanos = new long[PHASES.length];
+    private boolean flushPosted;
+
+    private final Runnable flush = new Runnable() {
+
+        @Override
+        public void run() {
+            flushPosted = false;
+            flush();
+        }
+    };
+
+    // budgetShare is the part of a frame the library may use per keystroke, e.g. 0.25f.
+    public FrameBudgetWatchdog(float budgetShare) {
+        this.budgetShare = budgetShare;
+    }
+
+    public float getBudgetShare() {
+        return budgetShare;
+    }
+
+    // EasyForm sets this from the display's refresh rate.
+    void setRefreshRate(float refreshRate) {
+        if (refreshRate > 0) {
+            frameNanos = (long) (1000000000L / refreshRate);
+        }
+    }
+
+    void record(FieldState field, FormMetrics.Phase phase, long nanos) {
+        if (keystrokeField != field) {
+            flush();
+            keystrokeField = field;
+        }
+
+        keystrokeNanos[phase.ordinal()] += nanos;
+
+        if (!flushPosted) {
+            if (handler == null) {
+                handler = new Handler(Looper.getMainLooper());
+            }
+            handler.post(flush);
+            flushPosted = true;
+        }
+    }
+
+    private void flush() {
+        if (keystrokeField == null) {
+            return;
+        }
+
+        long total = 0;
+        for (long nanos : keystrokeNanos) {
+            total += nanos;
+        }
+
+        if (total > frameNanos * budgetShare) {
+            Log.w(TAG, String.format(Locale.US,
+                    "Field %s took %.2fms on one keystroke, %d%% of a %.1fms frame (validate %.2fms, render %.2fms, format %.2fms). Slowest rule: %s",
+                    getFieldName(keystrokeField.id), total / 1e6, total * 100 / frameNanos, frameNanos / 1e6,
+                    keystrokeNanos[FormMetrics.Phase.VALIDATION.ordinal()] / 1e6,
+                    keystrokeNanos[FormMetrics.Phase.RENDER.ordinal()] / 1e6,
+                    keystrokeNanos[FormMetrics.Phase.FORMAT.ordinal()] / 1e6,
+                    keystrokeField.validator != null ? keystrokeField.validator.getSlowestRuleType() : ErrorType.NONE));
+        }
+
+        keystrokeField = null;
+        for (int i = 0; i < keystrokeNanos.length; i++) {
+            keystrokeNanos[i] = 0;
+        }
+    }
+
+    private String getFieldName(int id) {
+        if (resources != null) {
+            try {
+                return resources.getResourceEntryName(id);
+            } catch (Resources.NotFoundException e) {
+                // Generated ids have no name.
+            }
+        }
+
+        return String.format(Locale.US, "0x%08x", id);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Suggestion adapter for long item lists, e.g. thousands of city names. Unlike ArrayAdapter, whose
+ * filter lowercases and scans every item on each keystroke, it filters through a prefix index built
+ * once on a background thread. Items match by their start, or by the start of any word in them,
+ * ignoring case.
+ */
+public class IndexedItemAdapter extends BaseAdapter implements Filterable {
+
+    private final LayoutInflater inflater;
+    private final CountDownLatch indexBuilt = new CountDownLatch(1);
+    private volatile PrefixIndex index;
+    private List<String> suggestions = Collections.emptyList();
+    private Filter filter;
+
+    public IndexedItemAdapter(Context context, List<String> items) {
+        this(context, items, true, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    public IndexedItemAdapter(Context context, final List<String> items, final boolean matchWordStarts, Executor executor) {
+        this.inflater = LayoutInflater.from(context);
+
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    index = new PrefixIndex(items, matchWordStarts);
+                } finally {
+                    indexBuilt.countDown();
+                }
+            }
+        });
+    }
+
+    @Override
+    public int getCount() {
+        return suggestions.size();
+    }
+
+    @Override
+    public String getItem(int position) {
+        return suggestions.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = (TextView) (convertView != null
+                ? convertView : inflater.inflate(android.R.layout.simple_dropdown_item_1line, parent, false));
+        view.setText(getItem(position));
+        return view;
+    }
+
+    @Override
+    public Filter getFilter() {
+        if (filter == null) {
+            filter = new IndexFilter();
+        }
+
+        return filter;
+    }
+
+    // Runs on the filter's worker thread, which waits for the index if typing starts before it is built.
+    private List<String> query(CharSequence prefix) {
+        try {
+            indexBuilt.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        }
+
+        // A failed build leaves no index; suggestions are then off rather than crashing the field.
+        return index != null ? index.query(prefix) : Collections.<String>emptyList();
+    }
+
+    private final class IndexFilter extends Filter {
+
+        @Override
+        protected FilterResults performFiltering(CharSequence prefix) {
+            List<String> result = query(prefix);
+
+            FilterResults results = new FilterResults();
+            results.values = result;
+            results.count = result.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            suggestions = (List<String>) results.values;
+
+            if (results.count > 0) {
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+/**
+ * How typed text is compared with the items of an {@link ItemSet}. NORMALIZED also ignores case,
+ * accents and extra whitespace, e.g. "  zurich " matches "Z&uuml;rich".
+ */
+public enum ItemMatching {
+    EXACT,
+    IGNORE_CASE,
+    NORMALIZED;
+
+    public static ItemMatching valueOf(int value) {
+        for (ItemMatching matching : ItemMatching.values()) {
+            if (value == matching.ordinal()) {
+                return matching;
+            }
+        }
+
+        return EXACT;
+    }
+
+    @Override
+    public String toString() {
+        switch (this) {
+            case IGNORE_CASE:
+                return "IgnoreCase";
+
+            case NORMALIZED:
+                return "Normalized";
+
+            default:
+                return "Exact";
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Immutable set of allowed values for the item errorType. Items are folded once by their
+ * {@link ItemMatching} into an open-addressing hash table, so checking a text costs one pass over
+ * the text whatever the number of items, and allocates nothing unless a normalized text has
+ * non-ASCII chars.
+ */
+public final class ItemSet {
+
+    static final ItemSet EMPTY = new ItemSet(Collections.<String>emptyList(), ItemMatching.EXACT);
+
+    final ItemMatching matching;
+    // Folded items, sorted and distinct, so that texts no item starts with can be told apart.
+    private final String[] keys;
+    // Slots hold a key index + 1, 0 being empty. At most half full.
+    private final int[] table;
+    private final int hashCode;
+
+    public ItemSet(Collection<String> items, ItemMatching matching) {
+        this.matching = matching;
+
+        StringBuilder folded = new StringBuilder();
+        String[] keys = new String[items.size()];
+        int count = 0;
+        for (String item : items) {
+            fold(item, folded);
+            keys[count++] = folded.toString();
+        }
+
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || !keys[i].equals(keys[distinct - 1])) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        this.keys = Arrays.copyOf(keys, distinct);
+
+        int capacity = Integer.highestOneBit(Math.max(1, distinct) * 2 - 1) << 1;
+        this.table = new int[capacity];
+        for (int i = 0; i < distinct; i++) {
+            int slot = spread(this.keys[i].hashCode()) & (capacity - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            table[slot] = i + 1;
+        }
+
+        this.hashCode = 31 * matching.ordinal() + Arrays.hashCode(this.keys);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public boolean contains(CharSequence s) {
+        return contains(s, new StringBuilder());
+    }
+
+    // Leaves the folded text in folded, for hasPrefix.
+    boolean contains(CharSequence s, StringBuilder folded) {
+        fold(s, folded);
+
+        int hash = 0;
+        for (int i = 0; i < folded.length(); i++) {
+            hash = 31 * hash + folded.charAt(i);
+        }
+
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            String key = keys[table[slot] - 1];
+            if (key.hashCode() == hash && compare(key, folded) == 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // True when some item starts with the folded text, i.e. typing more can still make it an item.
+    boolean hasPrefix(StringBuilder folded) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(keys[middle], folded) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        if (low == keys.length || keys[low].length() < folded.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < folded.length(); i++) {
+            if (keys[low].charAt(i) != folded.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof ItemSet)) {
+            return false;
+        }
+
+        ItemSet that = (ItemSet) o;
+        return hashCode == that.hashCode && matching == that.matching && Arrays.equals(keys, that.keys);
+    }
+
+    // Made of String hashes only, so it is the same in every process like ValidatorSpec's.
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    private void fold(CharSequence s, StringBuilder out) {
+        out.setLength(0);
+
+        if (matching == ItemMatching.EXACT) {
+            out.append(s);
+            return;
+        }
+
+        CharSequence source = s;
+        if (matching == ItemMatching.NORMALIZED && !isAscii(s)) {
+            // Splits accented letters and compatibility forms into a base char and marks to drop.
+            source = Normalizer.normalize(s, Normalizer.Form.NFKD);
+        }
+
+        boolean space = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+
+            if (matching == ItemMatching.NORMALIZED) {
+                if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                    continue;
+                } else if (Character.isWhitespace(c)) {
+                    space = out.length() > 0;
+                    continue;
+                } else if (space) {
+                    out.append(' ');
+                    space = false;
+                }
+            }
+
+            out.append(Character.toLowerCase(Character.toUpperCase(c)));
+        }
+    }
+
+    private static boolean isAscii(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int compare(String key, StringBuilder folded) {
+        int length = Math.min(key.length(), folded.length());
+        for (int i = 0; i < length; i++) {
+            char a = key.charAt(i);
+            char b = folded.charAt(i);
+            if (a != b) {
+                return a - b;
+            }
+        }
+
+        return key.length() - folded.length();
+    }
+
+    // Keys that differ in their last chars have close String hashes; spreads them over the table.
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
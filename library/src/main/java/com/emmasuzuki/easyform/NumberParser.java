@@ -0,0 +1,270 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Reads a number straight from a CharSequence without allocating or throwing, so that partial input
+ * such as "-" or "1." is cheap to reject while typing. Accepts the locale's decimal and grouping
+ * separators; '.' is also read as the decimal separator when the locale does not group with it.
+ * Grouped integers must be grouped by thousands, as in "1,234,567".
+ */
+final class NumberParser {
+
+    private static final int GROUP_SIZE = 3;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Parsed value as sign, unscaled digits and scale (value = unscaled * 10^-scale). Digits past
+     * long precision are dropped and counted in droppedDigits.
+     */
+    static final class Decimal {
+        boolean negative;
+        long unscaled;
+        int scale;
+        int droppedDigits;
+        int exponent;
+        boolean hasFraction;
+
+        boolean isExact() {
+            return droppedDigits == 0 && exponent == 0;
+        }
+
+        double toDouble() {
+            double value = unscaled;
+            int power = droppedDigits + exponent - scale;
+
+            if (power > 0) {
+                value = power < POWERS_OF_TEN.length ? value * POWERS_OF_TEN[power] : value * Math.pow(10, power);
+            } else if (power < 0) {
+                value = -power < POWERS_OF_TEN.length ? value / POWERS_OF_TEN[-power] : value / Math.pow(10, -power);
+            }
+
+            return negative ? -value : value;
+        }
+
+        void set(double value) {
+            BigDecimal decimal = new BigDecimal(Double.toString(Math.abs(value)));
+            int maxPrecision = POWERS_OF_TEN.length - 1;
+
+            if (decimal.scale() < 0) {
+                decimal = decimal.setScale(0);
+            }
+            if (decimal.precision() > maxPrecision) {
+                decimal = decimal.setScale(Math.max(0, decimal.scale() - (decimal.precision() - maxPrecision)), RoundingMode.DOWN);
+            }
+
+            negative = value < 0;
+            droppedDigits = Math.max(0, decimal.precision() - maxPrecision);
+            exponent = 0;
+            if (droppedDigits > 0) {
+                // Beyond long precision, keep the leading digits and remember the magnitude.
+                decimal = decimal.movePointLeft(droppedDigits).setScale(0, RoundingMode.DOWN);
+            }
+
+            unscaled = decimal.unscaledValue().longValue();
+            scale = decimal.scale();
+        }
+    }
+
+    private final char decimalSeparator;
+    private final char groupingSeparator;
+
+    NumberParser(Locale locale) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        decimalSeparator = symbols.getDecimalSeparator();
+        groupingSeparator = symbols.getGroupingSeparator();
+    }
+
+    NumberParser(char decimalSeparator, char groupingSeparator) {
+        this.decimalSeparator = decimalSeparator;
+        this.groupingSeparator = groupingSeparator;
+    }
+
+    /**
+     * Parses s into out. An exponent ("1e5") is only read when allowExponent is set.
+     *
+     * @return false if s is not a complete number.
+     */
+    boolean parse(CharSequence s, Decimal out, boolean allowExponent) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && Character.isWhitespace(s.charAt(start)) && !isGrouping(s.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(s.charAt(end - 1)) && !isGrouping(s.charAt(end - 1))) {
+            end--;
+        }
+
+        out.negative = false;
+        out.unscaled = 0;
+        out.scale = 0;
+        out.droppedDigits = 0;
+        out.exponent = 0;
+        out.hasFraction = false;
+
+        int i = start;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            out.negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        int digits = 0;
+        // Integer digits since the last grouping separator, or -1 before the first one.
+        int groupDigits = -1;
+        boolean inFraction = false;
+
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                appendDigit(out, c - '0', inFraction);
+                digits++;
+                if (!inFraction && groupDigits >= 0) {
+                    groupDigits++;
+                }
+            } else if (!inFraction && isDecimalSeparator(c)) {
+                if (!isGroupComplete(groupDigits)) {
+                    return false;
+                }
+                inFraction = true;
+                out.hasFraction = true;
+            } else if (!inFraction && isGrouping(c)) {
+                // The first group has one to three digits, every later group exactly three.
+                if (groupDigits < 0 ? digits == 0 || digits > GROUP_SIZE : groupDigits != GROUP_SIZE) {
+                    return false;
+                }
+                groupDigits = 0;
+            } else if (allowExponent && digits > 0 && (c == 'e' || c == 'E')) {
+                return isGroupComplete(groupDigits) && parseExponent(s, i + 1, end, out);
+            } else {
+                return false;
+            }
+        }
+
+        return digits > 0 && (inFraction || isGroupComplete(groupDigits));
+    }
+
+    private static boolean isGroupComplete(int groupDigits) {
+        return groupDigits < 0 || groupDigits == GROUP_SIZE;
+    }
+
+    private static void appendDigit(Decimal out, int digit, boolean inFraction) {
+        if (out.unscaled > (Long.MAX_VALUE - digit) / 10) {
+            // Out of long precision: integer digits still count towards the magnitude, fraction digits are dropped.
+            if (!inFraction) {
+                out.droppedDigits++;
+            }
+            return;
+        }
+
+        out.unscaled = out.unscaled * 10 + digit;
+        if (inFraction) {
+            out.scale++;
+        }
+    }
+
+    private static boolean parseExponent(CharSequence s, int i, int end, Decimal out) {
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        if (i >= end) {
+            return false;
+        }
+
+        int exponent = 0;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return false;
+            }
+            exponent = Math.min(exponent * 10 + (c - '0'), 9999);
+        }
+
+        out.exponent = negative ? -exponent : exponent;
+        return true;
+    }
+
+    /**
+     * Compares two parsed values exactly when both fit in a long at a common scale, otherwise
+     * through doubles.
+     */
+    static int compare(Decimal a, Decimal b) {
+        if (a.negative != b.negative) {
+            boolean aZero = a.unscaled == 0 && a.droppedDigits == 0;
+            boolean bZero = b.unscaled == 0 && b.droppedDigits == 0;
+            if (aZero && bZero) {
+                return 0;
+            }
+            return a.negative ? -1 : 1;
+        }
+
+        if (!a.isExact() || !b.isExact()) {
+            return Double.compare(a.toDouble(), b.toDouble());
+        }
+
+        int magnitude = compareMagnitude(a.unscaled, a.scale, b.unscaled, b.scale);
+        return a.negative ? -magnitude : magnitude;
+    }
+
+    private static int compareMagnitude(long a, int aScale, long b, int bScale) {
+        if (aScale < bScale) {
+            return -compareMagnitude(b, bScale, a, aScale);
+        }
+
+        int diff = aScale - bScale;
+        if (diff >= POWERS_OF_TEN.length || b > Long.MAX_VALUE / POWERS_OF_TEN[diff]) {
+            // b scaled up would not fit in a long, so it is the larger one.
+            return -1;
+        }
+
+        long scaledB = b * POWERS_OF_TEN[diff];
+        return a < scaledB ? -1 : (a == scaledB ? 0 : 1);
+    }
+
+    private boolean isDecimalSeparator(char c) {
+        return c == decimalSeparator || (c == '.' && groupingSeparator != '.');
+    }
+
+    private boolean isGrouping(char c) {
+        if (c == groupingSeparator) {
+            return true;
+        }
+
+        // Locales grouping with a (no-break) space accept any of the space variants people type.
+        return Character.isSpaceChar(groupingSeparator) && (c == ' ' || c == '\u00a0' || c == '\u202f');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Process-wide LRU registry of compiled regex patterns, so that fields sharing the same
+ * regexPattern also share a single compiled {@link Pattern}.
+ */
+public final class PatternCache {
+
+    static final int MAX_SIZE = 64;
+
+    private static final Map<String, Pattern> patterns = new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private static long hitCount;
+    private static long missCount;
+
+    private PatternCache() {}
+
+    static Pattern get(String regexPattern) {
+        synchronized (patterns) {
+            Pattern pattern = patterns.get(regexPattern);
+
+            if (pattern != null) {
+                hitCount++;
+                return pattern;
+            }
+
+            missCount++;
+            pattern = Pattern.compile(regexPattern);
+            patterns.put(regexPattern, pattern);
+
+            return pattern;
+        }
+    }
+
+    public static long getHitCount() {
+        synchronized (patterns) {
+            return hitCount;
+        }
+    }
+
+    public static long getMissCount() {
+        synchronized (patterns) {
+            return missCount;
+        }
+    }
+
+    public static int size() {
+        synchronized (patterns) {
+            return patterns.size();
+        }
+    }
+
+    static void clear() {
+        synchronized (patterns) {
+            patterns.clear();
+            hitCount = 0;
+            missCount = 0;
+        }
+    }
+}
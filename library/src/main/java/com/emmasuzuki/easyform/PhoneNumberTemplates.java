@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019. Emma Suzuki <emma11suzuki@gmail.com>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-region phone number layouts, compiled once. A region may have several templates chosen by
+ * the leading digits typed so far; the longest matching prefix wins.
+ */
+final class PhoneNumberTemplates {
+
+    private static final Map<String, FormatTemplate[]> REGIONS = new HashMap<>();
+    private static final FormatTemplate[] NANP = {
+            new FormatTemplate("(###) ###-####"),
+            new FormatTemplate("1", "# (###) ###-####")
+    };
+
+    static {
+        REGIONS.put("US", NANP);
+        REGIONS.put("CA", NANP);
+        REGIONS.put("GB", new FormatTemplate[]{
+                new FormatTemplate("##### ######"),
+                new FormatTemplate("02", "### #### ####")
+        });
+        REGIONS.put("JP", new FormatTemplate[]{
+                new FormatTemplate("###-###-####"),
+                new FormatTemplate("03", "##-####-####"),
+                new FormatTemplate("06", "##-####-####"),
+                new FormatTemplate("070", "###-####-####"),
+                new FormatTemplate("080", "###-####-####"),
+                new FormatTemplate("090", "###-####-####")
+        });
+        REGIONS.put("FR", new FormatTemplate[]{
+                new FormatTemplate("## ## ## ## ##")
+        });
+        REGIONS.put("DE", new FormatTemplate[]{
+                new FormatTemplate("#### ########"),
+                new FormatTemplate("015", "#### #######"),
+                new FormatTemplate("016", "#### #######"),
+                new FormatTemplate("017", "#### #######"),
+                new FormatTemplate("030", "### ########")
+        });
+        REGIONS.put("AU", new FormatTemplate[]{
+                new FormatTemplate("## #### ####"),
+                new FormatTemplate("04", "#### ### ###")
+        });
+        REGIONS.put("IN", new FormatTemplate[]{
+                new FormatTemplate("##### #####")
+        });
+    }
+
+    private PhoneNumberTemplates() {}
+
+    static FormatTemplate[] forRegion(String region) {
+        if (region == null) {
+            region = Locale.getDefault().getCountry();
+        }
+
+        return REGIONS.get(region.toUpperCase(Locale.US));
+    }
+
+    // Reads only as many leading digits as the longest selector needs.
+    static FormatTemplate select(FormatTemplate[] templates, CharSequence s) {
+        FormatTemplate selected = null;
+
+        for (FormatTemplate template : templates) {
+            if ((selected == null || template.leadingDigits.length() > selected.leadingDigits.length())
+                    && startsWithDigits(s, template.leadingDigits)) {
+                selected = template;
+            }
+        }
+
+        return selected;
+    }
+
+    private static boolean startsWithDigits(CharSequence s, String digits) {
+        int matched = 0;
+
+        for (int i = 0; i < s.length() && matched < digits.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (c != digits.charAt(matched)) {
+                    return false;
+                }
+                matched++;
+            }
+        }
+
+        return matched == digits.length();
+    }
+}
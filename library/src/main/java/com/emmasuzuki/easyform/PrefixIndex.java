@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Case-insensitive prefix index over a list of items. Every place a match may start (the start of
+ * an item and, optionally, the start of each word in it) is an entry, and entries are sorted by the
+ * lowercased text from there on. The entries of a prefix are then one run found by binary search,
+ * so a query costs O(prefix * log entries + results) whatever the number of items.
+ */
+final class PrefixIndex {
+
+    private final List<String> items;
+    private final String[] keys;
+    // Sorted entries: item index and offset of the match start in its key.
+    private final int[] entryItems;
+    private final int[] entryOffsets;
+
+    // Query buffers, reused so a query allocates nothing per item. Guarded by this.
+    private final int[] marks;
+    private int mark;
+    private int[] hits = new int[16];
+
+    PrefixIndex(List<String> items, boolean matchWordStarts) {
+        this.items = items;
+        this.keys = new String[items.size()];
+
+        int entryCount = 0;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = items.get(i).toLowerCase(Locale.getDefault());
+            entryCount += matchWordStarts ? countWordStarts(keys[i]) : 1;
+        }
+
+        final int[] unsortedItems = new int[entryCount];
+        final int[] unsortedOffsets = new int[entryCount];
+        int entry = 0;
+        for (int i = 0; i < keys.length; i++) {
+            unsortedItems[entry++] = i;
+
+            for (int offset = 1; matchWordStarts && offset < keys[i].length(); offset++) {
+                if (isWordStart(keys[i], offset)) {
+                    unsortedItems[entry] = i;
+                    unsortedOffsets[entry++] = offset;
+                }
+            }
+        }
+
+        // Sorted once, when the index is built, so boxing the entries is fine.
+        Integer[] order = new Integer[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareFrom(keys[unsortedItems[a]], unsortedOffsets[a], keys[unsortedItems[b]], unsortedOffsets[b]);
+            }
+        });
+
+        entryItems = new int[entryCount];
+        entryOffsets = new int[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            entryItems[i] = unsortedItems[order[i]];
+            entryOffsets[i] = unsortedOffsets[order[i]];
+        }
+
+        marks = new int[keys.length];
+    }
+
+    // Items with a match for prefix, in the order they were given. An empty prefix matches all.
+    synchronized List<String> query(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return new ArrayList<>(items);
+        }
+
+        String lowerPrefix = prefix.toString().toLowerCase(Locale.getDefault());
+
+        if (++mark == 0) {
+            Arrays.fill(marks, 0);
+            mark = 1;
+        }
+
+        int hitCount = 0;
+        for (int entry = lowerBound(lowerPrefix); entry < entryItems.length; entry++) {
+            int item = entryItems[entry];
+            if (!keys[item].startsWith(lowerPrefix, entryOffsets[entry])) {
+                break;
+            }
+
+            // An item may match at several word starts but is listed once.
+            if (marks[item] != mark) {
+                marks[item] = mark;
+                if (hitCount == hits.length) {
+                    hits = Arrays.copyOf(hits, hitCount * 2);
+                }
+                hits[hitCount++] = item;
+            }
+        }
+
+        Arrays.sort(hits, 0, hitCount);
+
+        List<String> result = new ArrayList<>(hitCount);
+        for (int i = 0; i < hitCount; i++) {
+            result.add(items.get(hits[i]));
+        }
+
+        return result;
+    }
+
+    // First entry whose text is not less than prefix.
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = entryItems.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareFrom(keys[entryItems[middle]], entryOffsets[middle], prefix, 0) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private static int compareFrom(String a, int aFrom, String b, int bFrom) {
+        int length = Math.min(a.length() - aFrom, b.length() - bFrom);
+        for (int i = 0; i < length; i++) {
+            char ca = a.charAt(aFrom + i);
+            char cb = b.charAt(bFrom + i);
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+
+        return (a.length() - aFrom) - (b.length() - bFrom);
+    }
+
+    private static int countWordStarts(String key) {
+        int count = 1;
+        for (int offset = 1; offset < key.length(); offset++) {
+            if (isWordStart(key, offset)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    // A letter or digit after anything else, e.g. "york" in "new york" and "denis" in "saint-denis".
+    private static boolean isWordStart(String key, int offset) {
+        return Character.isLetterOrDigit(key.charAt(offset)) && !Character.isLetterOrDigit(key.charAt(offset - 1));
+    }
+}
@@ -0,0 +1,735 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic automaton for the regex subset commonly used in regexPattern: literals, escapes,
+ * character classes, groups, alternation and greedy or lazy quantifiers. Text is fed one char at
+ * a time, so a field can keep the state reached after each char and resume from the first edit.
+ * A state that can never reach a match is {@link #DEAD}, which tells a wrong input apart from an
+ * incomplete one.
+ *
+ * Patterns with flags, back references, lookaround, possessive quantifiers, anchors other than a
+ * leading ^ or trailing $, or supplementary characters are not compiled and keep using
+ * {@link java.util.regex}.
+ */
+final class RegexDfa {
+
+    static final int DEAD = -1;
+
+    private static final int MAX_NFA_STATES = 1024;
+    private static final int MAX_DFA_STATES = 512;
+    private static final int MAX_CHAR = Character.MAX_VALUE;
+
+    private static final int[] DIGIT = {'0', '9'};
+    private static final int[] WORD = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+    private static final int[] SPACE = {'\t', '\r', ' ', ' '};
+    // Any char but a line terminator.
+    private static final int[] DOT = complement(new int[]{'\n', '\n', '\r', '\r', '\u0085', '\u0085', '\u2028', '\u2029'});
+
+    private static final Comparator<int[]> RANGE_ORDER = new Comparator<int[]>() {
+
+        @Override
+        public int compare(int[] r1, int[] r2) {
+            return r1[0] - r2[0];
+        }
+    };
+
+    private static final Object UNSUPPORTED = new Object();
+    private static final Map<Pattern, Object> compiled = new WeakHashMap<>();
+
+    final int startState;
+
+    // Chars that no part of the pattern can tell apart share a class; classStarts holds the
+    // first char of each class.
+    private final char[] classStarts;
+    private final int[] asciiClasses = new int[128];
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    private RegexDfa(int startState, char[] classStarts, int[] transitions, boolean[] accepting) {
+        this.startState = startState;
+        this.classStarts = classStarts;
+        this.transitions = transitions;
+        this.accepting = accepting;
+
+        for (char c = 0; c < asciiClasses.length; c++) {
+            asciiClasses[c] = findClass(c);
+        }
+    }
+
+    // Returns null when the pattern is outside the supported subset.
+    static RegexDfa forPattern(Pattern pattern) {
+        synchronized (compiled) {
+            Object dfa = compiled.get(pattern);
+
+            if (dfa == null) {
+                dfa = pattern.flags() == 0 ? compile(pattern.pattern()) : null;
+                compiled.put(pattern, dfa != null ? dfa : UNSUPPORTED);
+            }
+
+            return dfa == UNSUPPORTED ? null : (RegexDfa) dfa;
+        }
+    }
+
+    int next(int state, char c) {
+        int charClass = c < asciiClasses.length ? asciiClasses[c] : findClass(c);
+        return transitions[state * classStarts.length + charClass];
+    }
+
+    boolean isAccepting(int state) {
+        return state != DEAD && accepting[state];
+    }
+
+    private int findClass(char c) {
+        int index = Arrays.binarySearch(classStarts, c);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private static RegexDfa compile(String regexPattern) {
+        try {
+            Node root = new Parser(regexPattern).parse();
+            Nfa nfa = new Nfa();
+            int[] fragment = nfa.build(root);
+            return determinize(nfa, fragment[0], fragment[1]);
+        } catch (UnsupportedPatternException e) {
+            return null;
+        }
+    }
+
+    private static RegexDfa determinize(Nfa nfa, int nfaStart, int nfaAccept) throws UnsupportedPatternException {
+        TreeSet<Integer> boundaries = new TreeSet<>();
+        boundaries.add(0);
+        for (int[] set : nfa.sets) {
+            for (int i = 0; i < set.length; i += 2) {
+                boundaries.add(set[i]);
+                if (set[i + 1] < MAX_CHAR) {
+                    boundaries.add(set[i + 1] + 1);
+                }
+            }
+        }
+
+        char[] classStarts = new char[boundaries.size()];
+        int classCount = 0;
+        for (int boundary : boundaries) {
+            classStarts[classCount++] = (char) boundary;
+        }
+
+        boolean[][] setMatchesClass = new boolean[nfa.sets.size()][classCount];
+        for (int set = 0; set < setMatchesClass.length; set++) {
+            for (int charClass = 0; charClass < classCount; charClass++) {
+                setMatchesClass[set][charClass] = contains(nfa.sets.get(set), classStarts[charClass]);
+            }
+        }
+
+        List<BitSet> states = new ArrayList<>();
+        Map<BitSet, Integer> stateIds = new HashMap<>();
+        int[] transitions = new int[16 * classCount];
+
+        BitSet start = nfa.closure(single(nfaStart));
+        states.add(start);
+        stateIds.put(start, 0);
+
+        for (int state = 0; state < states.size(); state++) {
+            BitSet current = states.get(state);
+
+            for (int charClass = 0; charClass < classCount; charClass++) {
+                BitSet moved = new BitSet();
+                for (int n = current.nextSetBit(0); n >= 0; n = current.nextSetBit(n + 1)) {
+                    int set = nfa.setOf[n];
+                    if (set >= 0 && setMatchesClass[set][charClass]) {
+                        moved.set(nfa.out[n]);
+                    }
+                }
+
+                int target = DEAD;
+                if (!moved.isEmpty()) {
+                    BitSet closure = nfa.closure(moved);
+                    Integer id = stateIds.get(closure);
+
+                    if (id == null) {
+                        if (states.size() == MAX_DFA_STATES) {
+                            throw new UnsupportedPatternException();
+                        }
+                        id = states.size();
+                        states.add(closure);
+                        stateIds.put(closure, id);
+                    }
+                    target = id;
+                }
+
+                int index = state * classCount + charClass;
+                if (index >= transitions.length) {
+                    transitions = Arrays.copyOf(transitions, transitions.length * 2);
+                }
+                transitions[index] = target;
+            }
+        }
+
+        int stateCount = states.size();
+        boolean[] accepting = new boolean[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            accepting[state] = states.get(state).get(nfaAccept);
+        }
+
+        // States that can no longer reach a match are folded into DEAD, so DEAD means "cannot
+        // become valid by typing more".
+        boolean[] live = accepting.clone();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int state = 0; state < stateCount; state++) {
+                for (int charClass = 0; !live[state] && charClass < classCount; charClass++) {
+                    int target = transitions[state * classCount + charClass];
+                    if (target != DEAD && live[target]) {
+                        live[state] = true;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        transitions = Arrays.copyOf(transitions, stateCount * classCount);
+        for (int i = 0; i < transitions.length; i++) {
+            if (transitions[i] != DEAD && !live[transitions[i]]) {
+                transitions[i] = DEAD;
+            }
+        }
+
+        return new RegexDfa(live[0] ? 0 : DEAD, classStarts, transitions, accepting);
+    }
+
+    private static BitSet single(int bit) {
+        BitSet set = new BitSet();
+        set.set(bit);
+        return set;
+    }
+
+    // Char sets are sorted, disjoint, inclusive ranges: {from0, to0, from1, to1, ...}.
+    private static boolean contains(int[] set, char c) {
+        for (int i = 0; i < set.length; i += 2) {
+            if (c >= set[i] && c <= set[i + 1]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[][] ranges = new int[(a.length + b.length) / 2][];
+        for (int i = 0; i < a.length; i += 2) {
+            ranges[i / 2] = new int[]{a[i], a[i + 1]};
+        }
+        for (int i = 0; i < b.length; i += 2) {
+            ranges[(a.length + i) / 2] = new int[]{b[i], b[i + 1]};
+        }
+
+        Arrays.sort(ranges, RANGE_ORDER);
+
+        int[] merged = new int[ranges.length * 2];
+        int length = 0;
+        for (int[] range : ranges) {
+            if (length > 0 && range[0] <= merged[length - 1] + 1) {
+                merged[length - 1] = Math.max(merged[length - 1], range[1]);
+            } else {
+                merged[length++] = range[0];
+                merged[length++] = range[1];
+            }
+        }
+
+        return Arrays.copyOf(merged, length);
+    }
+
+    private static int[] complement(int[] set) {
+        int[] result = new int[set.length + 2];
+        int length = 0;
+        int from = 0;
+
+        for (int i = 0; i < set.length; i += 2) {
+            if (set[i] > from) {
+                result[length++] = from;
+                result[length++] = set[i] - 1;
+            }
+            from = set[i + 1] + 1;
+        }
+
+        if (from <= MAX_CHAR) {
+            result[length++] = from;
+            result[length++] = MAX_CHAR;
+        }
+
+        return Arrays.copyOf(result, length);
+    }
+
+    private static final class Node {
+
+        static final int SET = 0;
+        static final int CONCAT = 1;
+        static final int ALTERNATE = 2;
+        static final int REPEAT = 3;
+
+        final int kind;
+        final List<Node> children = new ArrayList<>();
+        int[] set;
+        int min;
+        // -1 is unbounded.
+        int max;
+
+        Node(int kind) {
+            this.kind = kind;
+        }
+
+        static Node set(int[] set) {
+            Node node = new Node(SET);
+            node.set = set;
+            return node;
+        }
+    }
+
+    private static final class Parser {
+
+        private final String pattern;
+        private int pos;
+        private int depth;
+
+        Parser(String pattern) {
+            this.pattern = pattern;
+        }
+
+        Node parse() throws UnsupportedPatternException {
+            if (pattern.startsWith("^")) {
+                pos++;
+            }
+
+            Node node = parseAlternation();
+            if (pos != pattern.length()) {
+                throw new UnsupportedPatternException();
+            }
+
+            return node;
+        }
+
+        private Node parseAlternation() throws UnsupportedPatternException {
+            Node first = parseConcatenation();
+            if (!peek('|')) {
+                return first;
+            }
+
+            Node alternate = new Node(Node.ALTERNATE);
+            alternate.children.add(first);
+            while (peek('|')) {
+                pos++;
+                alternate.children.add(parseConcatenation());
+            }
+
+            return alternate;
+        }
+
+        private Node parseConcatenation() throws UnsupportedPatternException {
+            Node concat = new Node(Node.CONCAT);
+
+            while (pos < pattern.length() && !peek('|') && !peek(')')) {
+                // A trailing $ is implied, since the whole text has to match.
+                if (peek('$') && pos == pattern.length() - 1 && depth == 0) {
+                    pos++;
+                    break;
+                }
+
+                concat.children.add(parseQuantifiers(parseAtom()));
+            }
+
+            return concat;
+        }
+
+        private Node parseAtom() throws UnsupportedPatternException {
+            char c = pattern.charAt(pos++);
+
+            switch (c) {
+                case '(':
+                    if (peek('?')) {
+                        if (!pattern.startsWith("?:", pos)) {
+                            throw new UnsupportedPatternException();
+                        }
+                        pos += 2;
+                    }
+
+                    depth++;
+                    Node group = parseAlternation();
+                    depth--;
+
+                    if (!peek(')')) {
+                        throw new UnsupportedPatternException();
+                    }
+                    pos++;
+                    return group;
+
+                case '[':
+                    return Node.set(parseClass());
+
+                case '.':
+                    return Node.set(DOT);
+
+                case '\\':
+                    return Node.set(parseEscape());
+
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                case '^':
+                case '$':
+                case ')':
+                    throw new UnsupportedPatternException();
+
+                default:
+                    return Node.set(literal(c));
+            }
+        }
+
+        private Node parseQuantifiers(Node atom) throws UnsupportedPatternException {
+            while (pos < pattern.length()) {
+                int min;
+                int max;
+
+                switch (pattern.charAt(pos)) {
+                    case '*':
+                        min = 0;
+                        max = -1;
+                        pos++;
+                        break;
+
+                    case '+':
+                        min = 1;
+                        max = -1;
+                        pos++;
+                        break;
+
+                    case '?':
+                        min = 0;
+                        max = 1;
+                        pos++;
+                        break;
+
+                    case '{':
+                        pos++;
+                        min = parseNumber();
+                        max = min;
+                        if (peek(',')) {
+                            pos++;
+                            max = peek('}') ? -1 : parseNumber();
+                        }
+                        if (!peek('}') || (max != -1 && max < min)) {
+                            throw new UnsupportedPatternException();
+                        }
+                        pos++;
+                        break;
+
+                    default:
+                        return atom;
+                }
+
+                // A lazy quantifier accepts the same whole texts; a possessive one may not.
+                if (peek('?')) {
+                    pos++;
+                } else if (peek('+')) {
+                    throw new UnsupportedPatternException();
+                }
+
+                Node repeat = new Node(Node.REPEAT);
+                repeat.children.add(atom);
+                repeat.min = min;
+                repeat.max = max;
+                atom = repeat;
+            }
+
+            return atom;
+        }
+
+        private int parseNumber() throws UnsupportedPatternException {
+            int start = pos;
+            int value = 0;
+
+            while (pos < pattern.length() && Character.isDigit(pattern.charAt(pos)) && pos - start < 4) {
+                value = value * 10 + pattern.charAt(pos++) - '0';
+            }
+
+            if (pos == start || (pos < pattern.length() && Character.isDigit(pattern.charAt(pos)))) {
+                throw new UnsupportedPatternException();
+            }
+
+            return value;
+        }
+
+        private int[] parseClass() throws UnsupportedPatternException {
+            boolean negate = peek('^');
+            if (negate) {
+                pos++;
+            }
+
+            int[] set = new int[0];
+            boolean first = true;
+
+            while (true) {
+                if (pos >= pattern.length()) {
+                    throw new UnsupportedPatternException();
+                }
+
+                char c = pattern.charAt(pos++);
+                if (c == ']') {
+                    if (first) {
+                        throw new UnsupportedPatternException();
+                    }
+                    break;
+                }
+
+                if (c == '[' || (c == '&' && peek('&'))) {
+                    throw new UnsupportedPatternException();
+                }
+
+                first = false;
+                int[] item = c == '\\' ? parseEscape() : literal(c);
+
+                if (item.length == 2 && item[0] == item[1] && peek('-')
+                        && pos + 1 < pattern.length() && pattern.charAt(pos + 1) != ']') {
+                    pos++;
+                    char end = pattern.charAt(pos++);
+                    int[] endItem = end == '\\' ? parseEscape() : literal(end);
+
+                    if (endItem.length != 2 || endItem[0] != endItem[1] || endItem[0] < item[0]) {
+                        throw new UnsupportedPatternException();
+                    }
+                    item = new int[]{item[0], endItem[0]};
+                }
+
+                set = union(set, item);
+            }
+
+            return negate ? complement(set) : set;
+        }
+
+        private int[] parseEscape() throws UnsupportedPatternException {
+            if (pos >= pattern.length()) {
+                throw new UnsupportedPatternException();
+            }
+
+            char c = pattern.charAt(pos++);
+
+            switch (c) {
+                case 'd':
+                    return DIGIT;
+                case 'D':
+                    return complement(DIGIT);
+                case 'w':
+                    return WORD;
+                case 'W':
+                    return complement(WORD);
+                case 's':
+                    return SPACE;
+                case 'S':
+                    return complement(SPACE);
+                case 't':
+                    return literal('\t');
+                case 'n':
+                    return literal('\n');
+                case 'r':
+                    return literal('\r');
+                case 'f':
+                    return literal('\f');
+                case 'a':
+                    return literal('\u0007');
+                case 'e':
+                    return literal('\u001B');
+                case 'x':
+                    return literal(parseHex(2));
+                case 'u':
+                    return literal(parseHex(4));
+                default:
+                    // Boundaries, back references, \p{...}, \Q...\E and the like.
+                    if (Character.isLetterOrDigit(c)) {
+                        throw new UnsupportedPatternException();
+                    }
+                    return literal(c);
+            }
+        }
+
+        private char parseHex(int digits) throws UnsupportedPatternException {
+            int value = 0;
+
+            for (int i = 0; i < digits; i++) {
+                int digit = pos < pattern.length() ? Character.digit(pattern.charAt(pos++), 16) : -1;
+                if (digit < 0) {
+                    throw new UnsupportedPatternException();
+                }
+                value = value * 16 + digit;
+            }
+
+            return (char) value;
+        }
+
+        private int[] literal(char c) throws UnsupportedPatternException {
+            // Java matches code points, the automaton matches chars.
+            if (Character.isSurrogate(c)) {
+                throw new UnsupportedPatternException();
+            }
+
+            return new int[]{c, c};
+        }
+
+        private boolean peek(char c) {
+            return pos < pattern.length() && pattern.charAt(pos) == c;
+        }
+    }
+
+    // Thompson construction: a state either consumes one char of a set, or has up to two epsilon edges.
+    private static final class Nfa {
+
+        final List<int[]> sets = new ArrayList<>();
+        int[] setOf = new int[64];
+        int[] out = new int[64];
+        int[] out2 = new int[64];
+        int count;
+
+        // Returns {start, end}; end is a fresh state without edges.
+        int[] build(Node node) throws UnsupportedPatternException {
+            switch (node.kind) {
+                case Node.SET: {
+                    sets.add(node.set);
+                    int end = add(-1, -1, -1);
+                    return new int[]{add(sets.size() - 1, end, -1), end};
+                }
+
+                case Node.CONCAT: {
+                    int start = add(-1, -1, -1);
+                    int end = start;
+                    for (Node child : node.children) {
+                        int[] fragment = build(child);
+                        out[end] = fragment[0];
+                        end = fragment[1];
+                    }
+                    return new int[]{start, end};
+                }
+
+                case Node.ALTERNATE: {
+                    int end = add(-1, -1, -1);
+                    int start = -1;
+                    for (int i = node.children.size() - 1; i >= 0; i--) {
+                        int[] fragment = build(node.children.get(i));
+                        out[fragment[1]] = end;
+                        start = start == -1 ? fragment[0] : add(-1, fragment[0], start);
+                    }
+                    return new int[]{start, end};
+                }
+
+                default: {
+                    Node child = node.children.get(0);
+                    int start = add(-1, -1, -1);
+                    int end = start;
+
+                    for (int i = 0; i < node.min; i++) {
+                        int[] fragment = build(child);
+                        out[end] = fragment[0];
+                        end = fragment[1];
+                    }
+
+                    if (node.max == -1) {
+                        int[] fragment = build(child);
+                        int loopEnd = add(-1, -1, -1);
+                        // add() may grow out, so it must run before out is read for the store.
+                        int split = add(-1, fragment[0], loopEnd);
+                        out[end] = split;
+                        out[fragment[1]] = fragment[0];
+                        out2[fragment[1]] = loopEnd;
+                        end = loopEnd;
+                    } else {
+                        for (int i = node.min; i < node.max; i++) {
+                            int[] fragment = build(child);
+                            int optionalEnd = add(-1, -1, -1);
+                            int split = add(-1, fragment[0], optionalEnd);
+                            out[end] = split;
+                            out[fragment[1]] = optionalEnd;
+                            end = optionalEnd;
+                        }
+                    }
+
+                    return new int[]{start, end};
+                }
+            }
+        }
+
+        BitSet closure(BitSet states) {
+            BitSet closure = (BitSet) states.clone();
+            int[] stack = new int[count];
+            int size = 0;
+
+            for (int n = states.nextSetBit(0); n >= 0; n = states.nextSetBit(n + 1)) {
+                stack[size++] = n;
+            }
+
+            while (size > 0) {
+                int n = stack[--size];
+                if (setOf[n] >= 0) {
+                    continue;
+                }
+
+                if (out[n] >= 0 && !closure.get(out[n])) {
+                    closure.set(out[n]);
+                    stack[size++] = out[n];
+                }
+                if (out2[n] >= 0 && !closure.get(out2[n])) {
+                    closure.set(out2[n]);
+                    stack[size++] = out2[n];
+                }
+            }
+
+            return closure;
+        }
+
+        private int add(int set, int next, int next2) throws UnsupportedPatternException {
+            if (count == MAX_NFA_STATES) {
+                throw new UnsupportedPatternException();
+            }
+
+            if (count == setOf.length) {
+                setOf = Arrays.copyOf(setOf, count * 2);
+                out = Arrays.copyOf(out, count * 2);
+                out2 = Arrays.copyOf(out2, count * 2);
+            }
+
+            setOf[count] = set;
+            out[count] = next;
+            out2[count] = next2;
+            return count++;
+        }
+    }
+
+    private static final class UnsupportedPatternException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import android.text.TextUtils;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+
+/**
+ * A single immutable check of a field's text. Anything reused between calls, such as a Matcher,
+ * lives in the caller's {@link Scratch}, so one rule can be shared by many fields and threads.
+ */
+abstract class Rule {
+
+    final ErrorType errorType;
+    // Relative cost used to order a chain before real timings are known.
+    final int cost;
+
+    Rule(ErrorType errorType, int cost) {
+        this.errorType = errorType;
+        this.cost = cost;
+    }
+
+    abstract boolean isValid(CharSequence s, Scratch scratch);
+
+    static final class Scratch {
+        Matcher matcher;
+        NumberParser.Decimal decimal;
+        StringBuilder folded;
+
+        // Output: the failing rule may still pass once more text is typed.
+        boolean incomplete;
+
+        // Automaton state after each char of the text it was last run on, dfaTextLength chars long.
+        // States are valid for the first dfaLength chars and, moved by the change in length, for
+        // the last dfaSuffix chars.
+        RegexDfa dfa;
+        int[] dfaStates;
+        int dfaLength;
+        int dfaSuffix;
+        int dfaTextLength;
+
+        // Card checksum state after each char of the text, valid up to cardLength.
+        Card card;
+        int[] cardStates;
+        int cardLength;
+
+        // Since the last run only the text between its first unchangedPrefix and last
+        // unchangedSuffix chars changed, e.g. start and length - start - count of a TextWatcher edit.
+        // Edits add up until a rule runs, so rules skipped after an earlier rule failed see them too.
+        void edited(int unchangedPrefix, int unchangedSuffix) {
+            dfaLength = Math.min(dfaLength, unchangedPrefix);
+            dfaSuffix = Math.min(dfaSuffix, unchangedSuffix);
+            cardLength = Math.min(cardLength, unchangedPrefix);
+        }
+    }
+
+    static final class Empty extends Rule {
+
+        Empty() {
+            super(ErrorType.EMPTY, 1);
+        }
+
+        @Override
+        boolean isValid(CharSequence s, Scratch scratch) {
+            return !TextUtils.isEmpty(s);
+        }
+    }
+
+    static final class Chars extends Rule {
+
+        final int minChars;
+        final int maxChars;
+
+        Chars(int minChars, int maxChars) {
+            super(ErrorType.CHARS, 1);
+            this.minChars = minChars;
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        boolean isValid(CharSequence s, Scratch scratch) {
+            if (s.length() < minChars) {
+                scratch.incomplete = true;
+                return false;
+            }
+
+            return s.length() <= maxChars;
+        }
+    }
+
+    static final class Regex extends Rule {
+
+        private static final int FALLBACK = -2;
+
+        final java.util.regex.Pattern pattern;
+        // Null when the pattern is outside what RegexDfa supports.
+        final RegexDfa dfa;
+
+        Regex(java.util.regex.Pattern pattern) {
+            super(ErrorType.PATTERN, 8);
+            this.pattern = pattern;
+            this.dfa = RegexDfa.forPattern(pattern);
+        }
+
+        @Override
+        boolean isValid(CharSequence s, Scratch scratch) {
+            int state = dfa != null ? feed(s, scratch) : FALLBACK;
+
+            if (state != FALLBACK) {
+                boolean matches = dfa.isAccepting(state);
+                scratch.incomplete = !matches && state != RegexDfa.DEAD;
+                return matches;
+            }
+
+            // Matcher is reused across keystrokes instead of allocating one per validation.
+            if (scratch.matcher == null || scratch.matcher.pattern() != pattern) {
+                scratch.matcher = pattern.matcher(s);
+            } else {
+                scratch.matcher.reset(s);
+            }
+
+            boolean matches = scratch.matcher.matches();
+            scratch.incomplete = !matches && scratch.matcher.hitEnd();
+            return matches;
+        }
+
+        // Runs the automaton from the first edited char only, so typing at the end costs O(1). An
+        // edit in the middle stops as soon as the automaton is back in the state it had at the same
+        // place in the unchanged tail, which usually takes a few chars.
+        private int feed(CharSequence s, Scratch scratch) {
+            int length = s.length();
+            int from = 0;
+            int suffix = 0;
+
+            if (scratch.dfa == dfa) {
+                from = Math.min(scratch.dfaLength, length);
+                suffix = Math.min(scratch.dfaSuffix, Math.min(length, scratch.dfaTextLength) - from);
+            }
+
+            if (scratch.dfaStates == null || scratch.dfaStates.length <= length) {
+                int capacity = Math.max(length + 1, scratch.dfaStates == null ? 32 : scratch.dfaStates.length * 2);
+                scratch.dfaStates = scratch.dfaStates == null
+                        ? new int[capacity] : Arrays.copyOf(scratch.dfaStates, capacity);
+            }
+
+            int[] states = scratch.dfaStates;
+            int state = from == 0 ? dfa.startState : states[from];
+
+            // The tail's old states are moved to where the tail is now, to be compared with below.
+            int tailFrom = length - suffix;
+            if (suffix > 0) {
+                System.arraycopy(states, scratch.dfaTextLength - suffix, states, tailFrom, suffix + 1);
+            }
+
+            int i = from;
+            while (true) {
+                if (suffix > 0 && i >= tailFrom && states[i] == state) {
+                    i = length;
+                    state = states[length];
+                    break;
+                }
+
+                states[i] = state;
+                if (i == length || state == RegexDfa.DEAD) {
+                    break;
+                }
+
+                char c = s.charAt(i);
+
+                // Surrogate pairs are one code point to java.util.regex but two chars here.
+                if (Character.isSurrogate(c)) {
+                    scratch.dfa = null;
+                    return FALLBACK;
+                }
+
+                state = dfa.next(state, c);
+                i++;
+            }
+
+            scratch.dfa = dfa;
+            scratch.dfaTextLength = length;
+            scratch.dfaLength = i;
+            // A run that stopped on the dead state left the tail without states.
+            scratch.dfaSuffix = i == length ? length : 0;
+            return state;
+        }
+    }
+
+    // Card number: the Luhn checksum, and a valid length for the brand of its issuer prefix. Spaces
+    // and dashes are skipped, anything else fails.
+    static final class Card extends Rule {
+
+        // State after a prefix of the text, packed as digit count << 9 | invalid char << 8 |
+        // checksum if even positions are doubled << 4 | checksum if odd positions are doubled.
+        // The digit count says which of the two applies once the number ends.
+        private static final int DIGIT = 1 << 9;
+        private static final int INVALID = 1 << 8;
+
+        Card() {
+            super(ErrorType.CARD, 2);
+        }
+
+        @Override
+        boolean isValid(CharSequence s, Scratch scratch) {
+            int state = feed(s, scratch);
+            int digits = state >>> 9;
+
+            if ((state & INVALID) != 0) {
+                scratch.incomplete = false;
+                return false;
+            }
+
+            CardBrand brand = CardBrand.detect(s);
+            // The rightmost digit is never doubled, so with an even count the even positions are.
+            int checksum = (digits & 1) == 0 ? (state >>> 4) & 0xf : state & 0xf;
+            if (brand.isValidLength(digits) && checksum == 0) {
+                return true;
+            }
+
+            scratch.incomplete = digits < brand.maxLength;
+            return false;
+        }
+
+        // Carries the checksums on from the first edited char only, so typing or deleting at the
+        // end costs O(1) instead of a pass over the number.
+        private int feed(CharSequence s, Scratch scratch) {
+            int length = s.length();
+            int from = scratch.card == this ? Math.min(scratch.cardLength, length) : 0;
+
+            if (scratch.cardStates == null || scratch.cardStates.length <= length) {
+                int capacity = Math.max(length + 1, scratch.cardStates == null ? 32 : scratch.cardStates.length * 2);
+                scratch.cardStates = scratch.cardStates == null
+                        ? new int[capacity] : Arrays.copyOf(scratch.cardStates, capacity);
+            }
+
+            int[] states = scratch.cardStates;
+            states[0] = 0;
+
+            int state = states[from];
+            for (int i = from; i < length; i++) {
+                char c = s.charAt(i);
+
+                if (c >= '0' && c <= '9') {
+                    int digit = c - '0';
+                    int doubled = digit < 5 ? digit * 2 : digit * 2 - 9;
+                    boolean even = ((state >>> 9) & 1) == 0;
+                    int evenSum = (((state >>> 4) & 0xf) + (even ? doubled : digit)) % 10;
+                    int oddSum = ((state & 0xf) + (even ? digit : doubled)) % 10;
+                    state = (state & ~0xff) + DIGIT | evenSum << 4 | oddSum;
+                } else if (c != ' ' && c != '-') {
+                    state |= INVALID;
+                }
+
+                states[i + 1] = state;
+            }
+
+            scratch.card = this;
+            scratch.cardLength = length;
+            return state;
+        }
+    }
+
+    // One of the items of an ItemSet, looked up by hash. A text that some item starts with is
+    // incomplete rather than wrong.
+    static final class Item extends Rule {
+
+        final ItemSet items;
+
+        Item(ItemSet items) {
+            super(ErrorType.ITEM, 2);
+            this.items = items;
+        }
+
+        @Override
+        boolean isValid(CharSequence s, Scratch scratch) {
+            if (scratch.folded == null) {
+                scratch.folded = new StringBuilder();
+            }
+
+            if (items.contains(s, scratch.folded)) {
+                return true;
+            }
+
+            scratch.incomplete = items.hasPrefix(scratch.folded);
+            return false;
+        }
+    }
+
+    static final class Value extends Rule {
+
+        final ValuePrecision precision;
+        final double minValue;
+        final double maxValue;
+
+        private final NumberParser numberParser = new NumberParser(Locale.getDefault());
+        private final NumberParser.Decimal minDecimal = new NumberParser.Decimal();
+        private final NumberParser.Decimal maxDecimal = new NumberParser.Decimal();
+
+        Value(ValuePrecision precision, double minValue, double maxValue) {
+            super(ErrorType.VALUE, 4);
+            this.precision = precision;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+
+            minDecimal.set(minValue);
+            maxDecimal.set(maxValue);
+        }
+
+        @Override
+        boolean isValid(CharSequence s, Scratch scratch) {
+            if (scratch.decimal == null) {
+                scratch.decimal = new NumberParser.Decimal();
+            }
+
+            NumberParser.Decimal value = scratch.decimal;
+            if (!numberParser.parse(s, value, precision == ValuePrecision.DOUBLE)) {
+                return false;
+            }
+
+            switch (precision) {
+                case INTEGER:
+                    if (value.hasFraction || !value.isExact()
+                            || value.unscaled > (value.negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) {
+                        return false;
+                    }
+                    break;
+
+                case LONG:
+                    if (value.hasFraction || !value.isExact()) {
+                        return false;
+                    }
+                    break;
+
+                case DOUBLE:
+                    double doubleValue = value.toDouble();
+                    return doubleValue >= minValue && doubleValue <= maxValue;
+
+                default:
+                    break;
+            }
+
+            return NumberParser.compare(value, minDecimal) >= 0 && NumberParser.compare(value, maxDecimal) <= 0;
+        }
+    }
+}
@@ -18,14 +18,30 @@ package com.emmasuzuki.easyform;
 
 public enum ShowErrorOn {
     UNFOCUS,
-    CHANGE;
+    CHANGE,
+    DEBOUNCED;
 
     public static ShowErrorOn valueOf(int value) {
-        return value == UNFOCUS.ordinal() ? UNFOCUS : CHANGE;
+        for (ShowErrorOn showErrorOn : ShowErrorOn.values()) {
+            if (value == showErrorOn.ordinal()) {
+                return showErrorOn;
+            }
+        }
+
+        return CHANGE;
     }
 
     @Override
     public String toString() {
-        return this == CHANGE ? "Change" : "Unfocus";
+        switch (this) {
+            case UNFOCUS:
+                return "Unfocus";
+
+            case DEBOUNCED:
+                return "Debounced";
+
+            default:
+                return "Change";
+        }
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.emmasuzuki.easyform;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Named sections in system traces (systrace / Perfetto), so the library's work shows up next to
+ * the app's. A no-op before Android 4.3.
+ */
+final class Tracing {
+
+    static final String VALIDATE = "EasyForm.validate";
+    static final String RENDER_ERROR = "EasyForm.renderError";
+    static final String FORMAT = "EasyForm.format";
+    static final String AGGREGATE = "EasyForm.aggregate";
+    static final String DISCOVER_FIELDS = "EasyForm.discoverFields";
+
+    private Tracing() {}
+
+    static void beginSection(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+    }
+
+    static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static com.emmasuzuki.easyform.FormValidator.INVALID_VALUE;
+
+/**
+ * Immutable rule definition of a field, the code equivalent of the errorType, regexPattern,
+ * minValue, maxValue, valuePrecision, minChars, maxChars and errorMessage attributes, plus the
+ * {@link ItemSet} of the item errorType.
+ *
+ * Specs are interned: building a spec equal to one still in use returns that instance, so fields
+ * with the same rules, across forms and screens, share one spec and one set of rules.
+ */
+public final class ValidatorSpec {
+
+    private static final Map<ValidatorSpec, WeakReference<ValidatorSpec>> interned = new WeakHashMap<>();
+
+    // Rules of a widget created in code until it is given a spec.
+    static final ValidatorSpec NO_RULES = new Builder().build();
+
+    final ErrorType errorType;
+    final String regexPattern;
+    final float minValue;
+    final float maxValue;
+    final ValuePrecision valuePrecision;
+    final int minChars;
+    final int maxChars;
+    final ItemSet itemSet;
+    final String errorMessage;
+    private final String[] ruleErrorMessages;
+    // Rules resolved once; validators are copies sharing its Rule objects. Never validates itself.
+    private final FormValidator prototype;
+    // Validator shared by the widgets of this spec. Main thread only, like the widgets.
+    private FormValidator sharedValidator;
+
+    private ValidatorSpec(Builder builder) {
+        this.errorType = builder.errorType;
+        this.regexPattern = builder.regexPattern;
+        this.minValue = builder.minValue;
+        this.maxValue = builder.maxValue;
+        this.valuePrecision = builder.valuePrecision;
+        this.minChars = builder.minChars;
+        this.maxChars = builder.maxChars;
+        this.itemSet = builder.itemSet;
+        this.errorMessage = builder.errorMessage;
+        this.ruleErrorMessages = builder.ruleErrorMessages.clone();
+        this.prototype = createPrototype();
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public String getErrorMessage(ErrorType errorType) {
+        String ruleErrorMessage = ruleErrorMessages[errorType.ordinal()];
+        return ruleErrorMessage != null ? ruleErrorMessage : errorMessage;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof ValidatorSpec)) {
+            return false;
+        }
+
+        ValidatorSpec that = (ValidatorSpec) o;
+        return errorType == that.errorType
+                && equal(regexPattern, that.regexPattern)
+                && Float.compare(minValue, that.minValue) == 0
+                && Float.compare(maxValue, that.maxValue) == 0
+                && valuePrecision == that.valuePrecision
+                && minChars == that.minChars
+                && maxChars == that.maxChars
+                && (itemSet == null ? that.itemSet == null : itemSet.equals(that.itemSet))
+                && equal(errorMessage, that.errorMessage)
+                && Arrays.equals(ruleErrorMessages, that.ruleErrorMessages);
+    }
+
+    // Only made of values that are the same in every process, so it can be saved with a form's state.
+    @Override
+    public int hashCode() {
+        int result = errorType.ordinal();
+        result = 31 * result + (regexPattern != null ? regexPattern.hashCode() : 0);
+        result = 31 * result + Float.floatToIntBits(minValue);
+        result = 31 * result + Float.floatToIntBits(maxValue);
+        result = 31 * result + valuePrecision.ordinal();
+        result = 31 * result + minChars;
+        result = 31 * result + maxChars;
+        result = 31 * result + (itemSet != null ? itemSet.hashCode() : 0);
+        result = 31 * result + (errorMessage != null ? errorMessage.hashCode() : 0);
+        result = 31 * result + Arrays.hashCode(ruleErrorMessages);
+        return result;
+    }
+
+    FormValidator newValidator() {
+        return new FormValidator(prototype);
+    }
+
+    FormValidator sharedValidator() {
+        if (sharedValidator == null) {
+            sharedValidator = newValidator();
+        }
+
+        return sharedValidator;
+    }
+
+    // Specs are only weakly held, so a screen's specs go away with it.
+    private static ValidatorSpec intern(ValidatorSpec spec) {
+        synchronized (interned) {
+            WeakReference<ValidatorSpec> reference = interned.get(spec);
+            ValidatorSpec existing = reference != null ? reference.get() : null;
+            if (existing != null) {
+                return existing;
+            }
+
+            interned.put(spec, new WeakReference<>(spec));
+            return spec;
+        }
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private FormValidator createPrototype() {
+        FormValidator validator = new FormValidator(errorType, regexPattern, minValue, maxValue, minChars, maxChars);
+        validator.setValuePrecision(valuePrecision);
+        validator.setItemSet(itemSet);
+
+        for (ErrorType type : ErrorType.values()) {
+            validator.setErrorMessage(type, ruleErrorMessages[type.ordinal()]);
+        }
+
+        return validator;
+    }
+
+    public static final class Builder {
+
+        private ErrorType errorType = ErrorType.NONE;
+        private String regexPattern;
+        private float minValue = INVALID_VALUE;
+        private float maxValue = INVALID_VALUE;
+        private ValuePrecision valuePrecision = ValuePrecision.DOUBLE;
+        private int minChars = INVALID_VALUE;
+        private int maxChars = INVALID_VALUE;
+        private ItemSet itemSet;
+        private String errorMessage = "Error";
+        private final String[] ruleErrorMessages = new String[ErrorType.values().length];
+
+        public Builder() {}
+
+        // Starts from the rules of spec, to derive a spec that differs in a few of them.
+        public Builder(ValidatorSpec spec) {
+            this.errorType = spec.errorType;
+            this.regexPattern = spec.regexPattern;
+            this.minValue = spec.minValue;
+            this.maxValue = spec.maxValue;
+            this.valuePrecision = spec.valuePrecision;
+            this.minChars = spec.minChars;
+            this.maxChars = spec.maxChars;
+            this.itemSet = spec.itemSet;
+            this.errorMessage = spec.errorMessage;
+            System.arraycopy(spec.ruleErrorMessages, 0, ruleErrorMessages, 0, ruleErrorMessages.length);
+        }
+
+        public Builder setErrorType(ErrorType errorType) {
+            this.errorType = errorType;
+            return this;
+        }
+
+        public Builder setRegexPattern(String regexPattern) {
+            this.regexPattern = regexPattern;
+            return this;
+        }
+
+        public Builder setMinValue(float minValue) {
+            this.minValue = minValue;
+            return this;
+        }
+
+        public Builder setMaxValue(float maxValue) {
+            this.maxValue = maxValue;
+            return this;
+        }
+
+        public Builder setValuePrecision(ValuePrecision valuePrecision) {
+            this.valuePrecision = valuePrecision;
+            return this;
+        }
+
+        public Builder setMinChars(int minChars) {
+            this.minChars = minChars;
+            return this;
+        }
+
+        public Builder setMaxChars(int maxChars) {
+            this.maxChars = maxChars;
+            return this;
+        }
+
+        // Allowed values of the item errorType. Build the set once and share it between specs.
+        public Builder setItemSet(ItemSet itemSet) {
+            this.itemSet = itemSet;
+            return this;
+        }
+
+        public Builder setErrorMessage(String errorMessage) {
+            this.errorMessage = errorMessage;
+            return this;
+        }
+
+        public Builder setErrorMessage(ErrorType errorType, String errorMessage) {
+            ruleErrorMessages[errorType.ordinal()] = errorMessage;
+            return this;
+        }
+
+        // Keeps only the rule of errorType, as setting errorType on a widget always did.
+        Builder setOnlyErrorType(ErrorType errorType) {
+            if (errorType != ErrorType.PATTERN) {
+                regexPattern = null;
+            }
+            if (errorType != ErrorType.VALUE) {
+                minValue = INVALID_VALUE;
+                maxValue = INVALID_VALUE;
+            }
+            if (errorType != ErrorType.CHARS) {
+                minChars = INVALID_VALUE;
+                maxChars = INVALID_VALUE;
+            }
+            if (errorType != ErrorType.ITEM) {
+                itemSet = null;
+            }
+
+            return setErrorType(errorType);
+        }
+
+        public ValidatorSpec build() {
+            return intern(new ValidatorSpec(this));
+        }
+    }
+}
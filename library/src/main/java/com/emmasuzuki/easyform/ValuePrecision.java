@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+public enum ValuePrecision {
+    INTEGER,
+    LONG,
+    DOUBLE,
+    DECIMAL;
+
+    public static ValuePrecision valueOf(int value) {
+        for (ValuePrecision precision : ValuePrecision.values()) {
+            if (value == precision.ordinal()) {
+                return precision;
+            }
+        }
+
+        return DOUBLE;
+    }
+
+    @Override
+    public String toString() {
+        switch (this) {
+            case INTEGER:
+                return "Integer";
+
+            case LONG:
+                return "Long";
+
+            case DECIMAL:
+                return "Decimal";
+
+            default:
+                return "Double";
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class BatchValidatorTest {
+
+    private BatchValidator batchValidator;
+
+    public BatchValidatorTest() {
+        Map<String, ValidatorSpec> specs = new LinkedHashMap<>();
+        specs.put("code", new ValidatorSpec.Builder().setRegexPattern("[A-Z]{3}[0-9]+").build());
+        specs.put("name", new ValidatorSpec.Builder().setMinChars(2).setMaxChars(10).build());
+        specs.put("note", null);
+        batchValidator = new BatchValidator(specs);
+    }
+
+    @Test
+    public void testValidate() {
+        List<Map<String, CharSequence>> rows = new ArrayList<>();
+        rows.add(row("ABC1", "Emma"));
+        rows.add(row("AB1", "Emma"));
+        rows.add(row("ABC1", "E"));
+        rows.add(row(null, null));
+
+        BatchValidator.Result result = batchValidator.validate(rows);
+
+        assertEquals(4, result.getRowCount());
+        assertEquals(3, result.getInvalidRowCount());
+        assertTrue(result.isValid(0));
+        assertTrue(result.hasError(1, "code"));
+        assertFalse(result.hasError(1, "name"));
+        assertEquals(Arrays.asList("name"), result.getErrorFields(2));
+        assertEquals(Arrays.asList("code", "name"), result.getErrorFields(3));
+        assertEquals(3L, result.getErrorBits(3)[0]);
+    }
+
+    @Test
+    public void testValidate_ManyChunks() {
+        int rowCount = BatchValidator.CHUNK_SIZE * 10 + 7;
+        List<Map<String, CharSequence>> rows = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(row(i % 3 == 0 ? "abc" + i : "ABC" + i, "Name"));
+        }
+
+        BatchValidator.Result result = batchValidator.validate(rows);
+
+        assertEquals((rowCount + 2) / 3, result.getInvalidRowCount());
+        for (int i = 0; i < rowCount; i++) {
+            assertEquals(i % 3 != 0, result.isValid(i));
+        }
+    }
+
+    private static Map<String, CharSequence> row(String code, String name) {
+        Map<String, CharSequence> row = new HashMap<>();
+        row.put("code", code);
+        row.put("name", name);
+        return row;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class CardBrandTest {
+
+    private Rule.Card rule = new Rule.Card();
+    private Rule.Scratch scratch = new Rule.Scratch();
+
+    @Test
+    public void testDetect() {
+        assertEquals(CardBrand.VISA, CardBrand.detect("4111 1111"));
+        assertEquals(CardBrand.MASTERCARD, CardBrand.detect("5500"));
+        assertEquals(CardBrand.MASTERCARD, CardBrand.detect("2221 00"));
+        assertEquals(CardBrand.MASTERCARD, CardBrand.detect("2720"));
+        assertEquals(CardBrand.UNKNOWN, CardBrand.detect("2721"));
+        assertEquals(CardBrand.AMERICAN_EXPRESS, CardBrand.detect("3782"));
+        assertEquals(CardBrand.DINERS_CLUB, CardBrand.detect("3056"));
+        assertEquals(CardBrand.JCB, CardBrand.detect("3530 1113"));
+        assertEquals(CardBrand.UNIONPAY, CardBrand.detect("6212 3456"));
+        assertEquals(CardBrand.DISCOVER, CardBrand.detect("6221 26"));
+        assertEquals(CardBrand.DISCOVER, CardBrand.detect("6011 1111"));
+        assertEquals(CardBrand.MAESTRO, CardBrand.detect("6759 6498"));
+        assertEquals(CardBrand.UNKNOWN, CardBrand.detect("3"));
+        assertEquals(CardBrand.UNKNOWN, CardBrand.detect(""));
+    }
+
+    @Test
+    public void testIsValid() {
+        assertTrue(isValid("4111 1111 1111 1111"));
+        assertTrue(isValid("3782 822463 10005"));
+        assertTrue(isValid("5555-5555-5555-4444"));
+        assertFalse(isValid("5555 5555 5555 4445"));
+        assertFalse(scratch.incomplete);
+        // Visa numbers may still grow to 19 digits.
+        assertFalse(isValid("4111 1111 1111 1112"));
+        assertTrue(scratch.incomplete);
+        assertFalse(isValid("4111 1111 1111 111a"));
+        assertFalse(scratch.incomplete);
+        // Checksum passes but Amex numbers have 15 digits.
+        assertFalse(isValid("3400 0000 0000 0018"));
+    }
+
+    @Test
+    public void testIsValid_ResumesFromEdit() {
+        StringBuilder number = new StringBuilder("4111 1111 1111 111");
+
+        assertFalse(rule.isValid(number, scratch));
+        assertTrue(scratch.incomplete);
+
+        number.append('1');
+        scratch.edited(number.length() - 1, 0);
+        assertTrue(rule.isValid(number, scratch));
+
+        number.setCharAt(5, '2');
+        scratch.edited(5, 0);
+        assertFalse(rule.isValid(number, scratch));
+
+        number.setCharAt(5, '1');
+        scratch.edited(5, 0);
+        assertTrue(rule.isValid(number, scratch));
+
+        number.deleteCharAt(number.length() - 1);
+        scratch.edited(number.length(), 0);
+        assertFalse(rule.isValid(number, scratch));
+        assertTrue(scratch.incomplete);
+    }
+
+    private boolean isValid(String number) {
+        scratch.edited(0, 0);
+        return rule.isValid(number, scratch);
+    }
+}
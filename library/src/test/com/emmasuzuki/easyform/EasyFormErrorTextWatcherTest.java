@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class EasyFormErrorTextWatcherTest {
+
+    private final ManualExecutor asyncExecutor = new ManualExecutor();
+    private final ManualExecutor resultExecutor = new ManualExecutor();
+    private final List<String> events = new ArrayList<>();
+    private final List<String> validatedTexts = new ArrayList<>();
+    private final FieldState fieldState = new FieldState(1, null, null, "Error");
+
+    private String fieldText;
+    private EasyFormErrorTextWatcher watcher;
+
+    @Before
+    public void setUpBeforeEach() {
+        watcher = new EasyFormErrorTextWatcher(null) {
+
+            @Override
+            protected CharSequence getFieldText() {
+                return fieldText;
+            }
+
+            @Override
+            protected void renderError(String errorMessage) {
+            }
+
+            @Override
+            protected void clearError() {
+            }
+        };
+        watcher.setFieldState(fieldState);
+        watcher.setAsyncExecutor(asyncExecutor);
+        watcher.setResultExecutor(resultExecutor);
+        watcher.setAsyncValidator(new AsyncValidator() {
+
+            @Override
+            public boolean isValid(String text) {
+                validatedTexts.add(text);
+                return true;
+            }
+        }, "Taken");
+        watcher.setEasyFormErrorTextListener(new EasyFormErrorTextListener() {
+
+            @Override
+            public void onFilled(View view) {
+                events.add("filled");
+            }
+
+            @Override
+            public void onError(View view) {
+                events.add("error");
+            }
+
+            @Override
+            public void onPending(View view) {
+                events.add("pending");
+            }
+        });
+    }
+
+    @Test
+    public void testValidate_AsyncResultApplied() {
+        fieldText = "free";
+        watcher.validate(fieldText);
+
+        assertEquals(Arrays.asList("pending"), events);
+        assertTrue(fieldState.isPending());
+
+        asyncExecutor.runAll();
+        resultExecutor.runAll();
+
+        assertEquals(Arrays.asList("free"), validatedTexts);
+        assertEquals(Arrays.asList("pending", "filled"), events);
+        assertFalse(fieldState.isPending());
+        assertTrue(fieldState.isValid());
+    }
+
+    // With errors on unfocus, the watcher is detached while typing and sees no edit.
+    @Test
+    public void testValidate_AsyncResultForEditedTextDropped() {
+        fieldText = "taken";
+        watcher.validate(fieldText);
+        asyncExecutor.runAll();
+        fieldText = "take";
+        resultExecutor.runAll();
+
+        assertEquals(Arrays.asList("taken"), validatedTexts);
+        assertEquals(Arrays.asList("pending"), events);
+        assertTrue(fieldState.isPending());
+
+        watcher.validate(fieldText);
+        asyncExecutor.runAll();
+        resultExecutor.runAll();
+
+        assertEquals(Arrays.asList("taken", "take"), validatedTexts);
+        assertEquals(Arrays.asList("pending", "pending", "filled"), events);
+        assertFalse(fieldState.isPending());
+        assertTrue(fieldState.isValid());
+    }
+
+    @Test
+    public void testValidate_SupersededValidationSkipped() {
+        fieldText = "taken";
+        watcher.validate(fieldText);
+        fieldText = "free";
+        watcher.validate(fieldText);
+        asyncExecutor.runAll();
+        resultExecutor.runAll();
+
+        assertEquals(Arrays.asList("free"), validatedTexts);
+        assertEquals(Arrays.asList("pending", "pending", "filled"), events);
+        assertTrue(fieldState.isValid());
+    }
+
+    private static class ManualExecutor implements Executor {
+
+        private final List<Runnable> commands = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            commands.add(command);
+        }
+
+        void runAll() {
+            List<Runnable> running = new ArrayList<>(commands);
+            commands.clear();
+            for (Runnable command : running) {
+                command.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.RadioButton;
+import android.widget.RadioGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class EasyFormHierarchyTest {
+
+    private ValidatorSpec required = new ValidatorSpec.Builder()
+            .setErrorType(ErrorType.EMPTY)
+            .setErrorMessage("Required")
+            .build();
+
+    private Context context;
+    private EasyForm easyForm;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+        easyForm = new EasyForm(context);
+    }
+
+    @Test
+    public void testNestedRadioGroup_KeepsItsHierarchyListener() {
+        RecordingListener appListener = new RecordingListener();
+        RadioGroup radioGroup = new RadioGroup(context);
+        radioGroup.setOnHierarchyChangeListener(appListener);
+        easyForm.addView(radioGroup);
+
+        RadioButton first = new RadioButton(context);
+        RadioButton second = new RadioButton(context);
+        radioGroup.addView(first);
+        radioGroup.addView(second);
+
+        // RadioGroup's own listener gives the buttons ids and unchecks the others.
+        assertTrue(first.getId() != View.NO_ID);
+        first.setChecked(true);
+        second.setChecked(true);
+        assertEquals(second.getId(), radioGroup.getCheckedRadioButtonId());
+        assertTrue(!first.isChecked());
+        assertEquals(2, appListener.added);
+
+        radioGroup.removeView(second);
+        assertEquals(1, appListener.removed);
+
+        easyForm.removeView(radioGroup);
+        radioGroup.addView(new RadioButton(context));
+        assertEquals(3, appListener.added);
+    }
+
+    @Test
+    public void testAddView_RegistersFieldsOfNestedGroup() {
+        RadioGroup radioGroup = new RadioGroup(context);
+        radioGroup.addView(newField());
+        radioGroup.addView(new RadioButton(context));
+        easyForm.addView(radioGroup);
+
+        assertEquals(1, easyForm.getFormModel().getFieldCount());
+
+        easyForm.removeView(radioGroup);
+
+        assertEquals(0, easyForm.getFormModel().getFieldCount());
+    }
+
+    @Test
+    public void testRegisterField_FieldAddedInsideNestedGroup() {
+        LinearLayout layout = new LinearLayout(context);
+        easyForm.addView(layout);
+
+        EasyFormEditText field = newField();
+        layout.addView(field);
+
+        assertEquals(0, easyForm.getFormModel().getFieldCount());
+
+        easyForm.registerField(field);
+
+        assertEquals(1, easyForm.getFormModel().getFieldCount());
+        assertEquals(FormState.INVALID, easyForm.getFormState());
+
+        layout.removeView(field);
+        easyForm.unregisterField(field);
+
+        assertEquals(0, easyForm.getFormModel().getFieldCount());
+        assertEquals(FormState.VALID, easyForm.getFormState());
+    }
+
+    @Test
+    public void testRegisterField_GroupAddedInsideNestedGroup() {
+        LinearLayout layout = new LinearLayout(context);
+        easyForm.addView(layout);
+
+        LinearLayout section = new LinearLayout(context);
+        section.addView(newField());
+        section.addView(newField());
+        layout.addView(section);
+        easyForm.registerField(section);
+
+        assertEquals(2, easyForm.getFormModel().getFieldCount());
+
+        layout.removeView(section);
+        easyForm.unregisterField(section);
+
+        assertEquals(0, easyForm.getFormModel().getFieldCount());
+    }
+
+    @Test
+    public void testSetOnHierarchyChangeListener_CalledForFormChildren() {
+        RecordingListener appListener = new RecordingListener();
+        easyForm.setOnHierarchyChangeListener(appListener);
+
+        LinearLayout layout = new LinearLayout(context);
+        easyForm.addView(layout);
+        layout.addView(newField());
+        easyForm.removeView(layout);
+
+        assertEquals(1, appListener.added);
+        assertEquals(1, appListener.removed);
+    }
+
+    private EasyFormEditText newField() {
+        EasyFormEditText field = new EasyFormEditText(context);
+        field.setValidatorSpec(required);
+        return field;
+    }
+
+    private static class RecordingListener implements ViewGroup.OnHierarchyChangeListener {
+
+        int added;
+        int removed;
+
+        @Override
+        public void onChildViewAdded(View parent, View child) {
+            added++;
+        }
+
+        @Override
+        public void onChildViewRemoved(View parent, View child) {
+            removed++;
+        }
+    }
+}
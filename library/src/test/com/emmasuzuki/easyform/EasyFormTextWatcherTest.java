@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+public class EasyFormTextWatcherTest {
+
+    private final TestEditable editable = new TestEditable();
+    private EasyFormTextWatcher watcher;
+    private int cursorPos;
+
+    @Before
+    public void setUpBeforeEach() {
+        setFormType(EasyFormType.CREDIT_CARD);
+    }
+
+    @Test
+    public void testFormat_TypeDigits() {
+        type("4111111111111111");
+
+        assertEquals("4111 1111 1111 1111", editable.toString());
+        assertEquals(19, cursorPos);
+    }
+
+    @Test
+    public void testFormat_Paste() {
+        edit(0, 0, "4111-1111 1111x1111");
+
+        assertEquals("4111 1111 1111 1111", editable.toString());
+        assertEquals(19, cursorPos);
+    }
+
+    @Test
+    public void testFormat_CappedAtTemplateLength() {
+        type("555555555555444499");
+
+        assertEquals("5555 5555 5555 4444", editable.toString());
+    }
+
+    @Test
+    public void testFormat_BackspaceOverLiteralDeletesDigitInFront() {
+        type("41234567");
+        edit(4, 5, "");
+
+        assertEquals("4124 567", editable.toString());
+        assertEquals(3, cursorPos);
+    }
+
+    @Test
+    public void testFormat_BackspaceAtEndDropsTrailingLiteral() {
+        type("41234");
+        edit(5, 6, "");
+
+        assertEquals("4123", editable.toString());
+        assertEquals(4, cursorPos);
+    }
+
+    @Test
+    public void testFormat_InsertRealignsTail() {
+        type("412345678901");
+        edit(1, 1, "0");
+
+        assertEquals("4012 3456 7890 1", editable.toString());
+        assertEquals(2, cursorPos);
+    }
+
+    @Test
+    public void testFormat_DeleteRealignsTail() {
+        type("412345678901");
+        edit(1, 2, "");
+
+        assertEquals("4234 5678 901", editable.toString());
+        assertEquals(1, cursorPos);
+    }
+
+    @Test
+    public void testFormat_ReplaceKeepsAlignedTail() {
+        type("412345678901");
+        edit(5, 9, "9999");
+
+        assertEquals("4123 9999 8901", editable.toString());
+        assertEquals(9, cursorPos);
+    }
+
+    @Test
+    public void testFormat_BrandChangeRegroups() {
+        type("4712345678901");
+        edit(0, 2, "37");
+
+        assertEquals("3712 345678 901", editable.toString());
+    }
+
+    @Test
+    public void testFormat_Phone() {
+        setPhoneRegion("US");
+        type("4155552671");
+
+        assertEquals("(415) 555-2671", editable.toString());
+        assertEquals(14, cursorPos);
+    }
+
+    @Test
+    public void testFormat_PhoneLeadingDigitsPickTemplate() {
+        setPhoneRegion("US");
+        type("14155552671");
+
+        assertEquals("1 (415) 555-2671", editable.toString());
+
+        setPhoneRegion("JP");
+        type("0312345678");
+
+        assertEquals("03-1234-5678", editable.toString());
+    }
+
+    @Test
+    public void testFormat_PhoneTemplateChangeRelaysText() {
+        setPhoneRegion("JP");
+        type("0901234567");
+
+        assertEquals("090-1234-567", editable.toString());
+
+        // "03..." has its own layout, so the whole text is laid out again.
+        edit(1, 3, "3");
+
+        assertEquals("03-1234-567", editable.toString());
+        assertEquals(2, cursorPos);
+    }
+
+    @Test
+    public void testFormat_PhoneInternationalLeftAsTyped() {
+        setPhoneRegion("US");
+        type("+14155552671");
+
+        assertEquals("+14155552671", editable.toString());
+
+        edit(4, 4, " ");
+
+        assertEquals("+141 55552671", editable.toString());
+
+        edit(0, 1, "");
+
+        assertEquals("1 (415) 555-2671", editable.toString());
+    }
+
+    @Test
+    public void testFormat_PhoneMidStringInsert() {
+        setPhoneRegion("US");
+        type("415552671");
+        edit(7, 7, "5");
+
+        assertEquals("(415) 555-2671", editable.toString());
+        assertEquals(8, cursorPos);
+    }
+
+    @Test
+    public void testFormat_PhoneMidStringDelete() {
+        setPhoneRegion("US");
+        type("4155552671");
+        edit(2, 3, "");
+
+        assertEquals("(455) 552-671", editable.toString());
+        assertEquals(2, cursorPos);
+    }
+
+    @Test
+    public void testFormat_PhoneBackspaceOverLiteral() {
+        setPhoneRegion("US");
+        type("4155552671");
+        edit(9, 10, "");
+
+        assertEquals("(415) 552-671", editable.toString());
+        assertEquals(8, cursorPos);
+    }
+
+    private void setFormType(EasyFormType formType) {
+        watcher = new EasyFormTextWatcher(formType);
+        watcher.setListener(new FormatListener() {
+
+            @Override
+            public void formatted(int cursorPos) {
+                EasyFormTextWatcherTest.this.cursorPos = cursorPos;
+            }
+        });
+    }
+
+    private void setPhoneRegion(String region) {
+        setFormType(EasyFormType.PHONE_NUMBER);
+        watcher.setPhoneRegion(region);
+        editable.clear();
+    }
+
+    private void type(String digits) {
+        for (int i = 0; i < digits.length(); i++) {
+            edit(editable.length(), editable.length(), digits.substring(i, i + 1));
+        }
+    }
+
+    // Same order of calls as an EditText.
+    private void edit(int start, int end, String text) {
+        watcher.beforeTextChanged(editable, start, end - start, text.length());
+        editable.replace(start, end, text);
+        watcher.onTextChanged(editable, start, end - start, text.length());
+        watcher.afterTextChanged(editable);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+public class FormMetricsTest {
+
+    @Test
+    public void testBucketOf() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(0, LatencyHistogram.bucketOf(1));
+        assertEquals(1, LatencyHistogram.bucketOf(3));
+        assertEquals(10, LatencyHistogram.bucketOf(1024));
+        assertEquals(62, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(100000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1023, histogram.getPercentileNanos(50));
+        assertEquals(1023, histogram.getPercentileNanos(99));
+        assertEquals(100000, histogram.getPercentileNanos(100));
+        assertEquals(100000, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void testRecord_PerFieldAndPhase() {
+        FormMetrics metrics = new FormMetrics();
+        FormModel formModel = new FormModel();
+        formModel.setFormMetrics(metrics);
+        FieldState first = formModel.addField(1, null);
+        FieldState second = formModel.addField(2, null);
+
+        metrics.record(first, FormMetrics.Phase.VALIDATION, 500);
+        metrics.record(first, FormMetrics.Phase.VALIDATION, 700);
+        metrics.record(second, FormMetrics.Phase.RENDER, 9000);
+
+        assertEquals(2, metrics.getHistogram(1, FormMetrics.Phase.VALIDATION).getCount());
+        assertEquals(1200, metrics.getHistogram(1, FormMetrics.Phase.VALIDATION).getTotalNanos());
+        assertEquals(0, metrics.getHistogram(1, FormMetrics.Phase.RENDER).getCount());
+        assertEquals(1, metrics.getHistogram(2, FormMetrics.Phase.RENDER).getCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getHistogram(1, FormMetrics.Phase.VALIDATION).getCount());
+        metrics.record(first, FormMetrics.Phase.VALIDATION, 500);
+        assertEquals(1, metrics.getHistogram(1, FormMetrics.Phase.VALIDATION).getCount());
+    }
+}
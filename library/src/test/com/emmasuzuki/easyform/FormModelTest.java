@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class FormModelTest {
+
+    private ValidatorSpec digits = new ValidatorSpec.Builder()
+            .setRegexPattern("[0-9]+")
+            .setErrorMessage("Digits only")
+            .build();
+
+    private FormModel formModel = new FormModel();
+
+    @Test
+    public void testAddField_ValidatesEmptyValue() {
+        formModel.addField(1, digits);
+        formModel.addField(2, null);
+
+        assertFalse(formModel.getField(1).isValid());
+        assertTrue(formModel.getField(2).isValid());
+        assertFalse(formModel.isValid());
+    }
+
+    @Test
+    public void testSetValue() {
+        formModel.addField(1, digits);
+        formModel.addField(2, digits);
+
+        assertTrue(formModel.setValue(1, "12"));
+        assertFalse(formModel.setValue(2, "1a"));
+        assertEquals("Digits only", formModel.getField(2).getErrorMessage());
+        assertFalse(formModel.isValid());
+
+        assertTrue(formModel.setValue(2, "3"));
+        assertNull(formModel.getField(2).getErrorMessage());
+        assertTrue(formModel.isValid());
+        assertEquals("12", formModel.getValue(1));
+    }
+
+    @Test
+    public void testSetValue_UnknownId() {
+        assertFalse(formModel.setValue(1, "12"));
+        assertNull(formModel.getValue(1));
+    }
+
+    @Test
+    public void testRemoveField() {
+        formModel.addField(1, digits);
+        formModel.addField(2, digits);
+        formModel.setValue(1, "12");
+
+        formModel.removeField(2);
+
+        assertTrue(formModel.isValid());
+        assertEquals(1, formModel.getFieldCount());
+        assertNull(formModel.getField(2));
+    }
+
+    @Test
+    public void testAddField_ReplacesSameId() {
+        FieldState first = formModel.addField(1, digits);
+        FieldState second = formModel.addField(1, null);
+
+        assertSame(second, formModel.getField(1));
+        assertNull(first.model);
+        assertEquals(1, formModel.getFieldCount());
+        assertTrue(formModel.isValid());
+    }
+
+    @Test
+    public void testSharedValidator_KeepsFieldsApart() {
+        formModel.addField(1, digits);
+        formModel.addField(2, digits);
+
+        formModel.getField(1).validate("123", 0);
+        formModel.getField(2).validate("12a", 2);
+
+        assertTrue(formModel.getField(1).isValid());
+        assertFalse(formModel.getField(2).isValid());
+        assertTrue(formModel.getField(1).validate("1234", 3));
+    }
+
+    @Test
+    public void testRestoreResult_MatchesSavedHash() {
+        FieldState field = formModel.addField(1, digits);
+        field.validate(new StringBuilder("12a"), 0);
+        int savedHash = field.getResultHash();
+
+        FieldState restored = new FormModel().addField(1, digits);
+        assertEquals(savedHash, FieldState.hash(digits, "12a".hashCode()));
+        assertTrue(savedHash != FieldState.hash(digits, FieldState.hash("12")));
+
+        restored.restoreResult("12a", false, "Digits only");
+        assertFalse(restored.isValid());
+        assertEquals("Digits only", restored.getErrorMessage());
+        assertEquals(savedHash, restored.getResultHash());
+    }
+
+    @Test
+    public void testGetFormState_PendingThenValidWithOtherFieldInvalid() {
+        FormStateDispatcher dispatcher = new FormStateDispatcher();
+        final List<FormState> states = new ArrayList<>();
+        dispatcher.addListener(new FormStateListener() {
+            @Override
+            public void onFormStateChanged(FormState state) {
+                states.add(state);
+            }
+        });
+
+        FieldState async = formModel.addField(1, digits);
+        formModel.addField(2, digits);
+
+        // Field 1 passes its rules and waits for its AsyncValidator while field 2 is still empty.
+        async.validate("12", 0);
+        async.setResult(false, null);
+        async.setPending(true);
+        dispatcher.setState(formModel.getFormState(false));
+        assertEquals(FormState.PENDING, dispatcher.getState());
+
+        async.setResult(true, null);
+        async.setPending(false);
+        dispatcher.setState(formModel.getFormState(false));
+
+        assertEquals(Arrays.asList(FormState.PENDING, FormState.INVALID), states);
+
+        formModel.setValue(2, "3");
+        assertEquals(FormState.VALID, formModel.getFormState(false));
+    }
+
+    @Test
+    public void testGetFormState_LastFieldOnSubmit() {
+        FieldState last = formModel.addField(1, digits);
+        formModel.addField(2, digits);
+        formModel.addField(3, digits);
+
+        formModel.setValue(3, "3");
+        assertEquals(FormState.INVALID, formModel.getFormState(true));
+
+        formModel.setValue(2, "2");
+        assertEquals(FormState.VALID, formModel.getFormState(true));
+        assertEquals(FormState.INVALID, formModel.getFormState(false));
+
+        last.setPending(true);
+        assertEquals(FormState.PENDING, formModel.getFormState(true));
+
+        last.setPending(false);
+        formModel.setValue(1, "1");
+        assertEquals(FormState.VALID, formModel.getFormState(false));
+    }
+}
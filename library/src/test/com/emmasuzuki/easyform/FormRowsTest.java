@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class FormRowsTest {
+
+    private ValidatorSpec digits = new ValidatorSpec.Builder()
+            .setRegexPattern("[0-9]+")
+            .setErrorMessage("Digits only")
+            .build();
+
+    private ValidatorSpec letters = new ValidatorSpec.Builder()
+            .setRegexPattern("[a-z]+")
+            .setErrorMessage("Letters only")
+            .build();
+
+    private FormModel formModel = new FormModel();
+    private FormRows rows = new FormRows();
+    private TestAdapter adapter = new TestAdapter();
+
+    @Test
+    public void testSync_AddsFieldsWithAdapterText() {
+        adapter.addRow(1, digits, "12");
+        adapter.addRow(2, digits, "1a");
+        adapter.addRow(3, null, null);
+        rows.sync(formModel, adapter);
+
+        assertEquals(3, rows.size());
+        assertEquals(3, formModel.getFieldCount());
+        assertEquals("12", rows.get(0).getValue().toString());
+        assertTrue(rows.get(0).isValid());
+        assertFalse(rows.get(1).isValid());
+        assertEquals("", rows.get(2).getValue().toString());
+        assertTrue(rows.get(2).isValid());
+    }
+
+    @Test
+    public void testSync_KeepsEditedValues() {
+        adapter.addRow(1, digits, "12");
+        rows.sync(formModel, adapter);
+        formModel.setValue(1, "345");
+
+        adapter.texts.set(0, "678");
+        rows.sync(formModel, adapter);
+
+        assertEquals("345", rows.get(0).getValue().toString());
+    }
+
+    @Test
+    public void testSync_FieldsFollowTheirRows() {
+        adapter.addRow(1, digits, "1");
+        adapter.addRow(2, digits, "2");
+        adapter.addRow(3, digits, "3");
+        rows.sync(formModel, adapter);
+        FieldState first = rows.get(0);
+        FieldState third = rows.get(2);
+
+        // Third row moved to the top, as notifyItemMoved would report it.
+        adapter.moveRow(2, 0);
+        rows.sync(formModel, adapter);
+
+        assertSame(third, rows.get(0));
+        assertSame(first, rows.get(1));
+        assertEquals(3, formModel.getFieldCount());
+    }
+
+    @Test
+    public void testSync_SpecChangeKeepsValue() {
+        adapter.addRow(1, digits, "abc");
+        rows.sync(formModel, adapter);
+        FieldState field = rows.get(0);
+        field.errorVisible = true;
+
+        adapter.specs.set(0, letters);
+        rows.sync(formModel, adapter);
+
+        assertNotSame(field, rows.get(0));
+        assertSame(letters, rows.get(0).getSpec());
+        assertEquals("abc", rows.get(0).getValue().toString());
+        assertTrue(rows.get(0).isValid());
+        assertTrue(rows.get(0).errorVisible);
+    }
+
+    @Test
+    public void testSync_DropsRemovedRows() {
+        adapter.addRow(1, digits, "1");
+        adapter.addRow(2, digits, "a");
+        adapter.addRow(3, digits, "3");
+        rows.sync(formModel, adapter);
+        assertFalse(formModel.isValid());
+
+        adapter.removeRow(1);
+        rows.sync(formModel, adapter);
+
+        assertEquals(2, rows.size());
+        assertEquals(2, formModel.getFieldCount());
+        assertNull(formModel.getField(2));
+        assertTrue(formModel.isValid());
+
+        rows.sync(formModel, null);
+
+        assertEquals(0, rows.size());
+        assertEquals(0, formModel.getFieldCount());
+    }
+
+    // A row bound after data changes gets the field of its id, not of its old position.
+    @Test
+    public void testSync_BoundPositionAfterInsert() {
+        adapter.addRow(1, digits, "1");
+        adapter.addRow(2, digits, "2");
+        rows.sync(formModel, adapter);
+        formModel.setValue(2, "22");
+
+        adapter.ids.add(0, 9);
+        adapter.specs.add(0, letters);
+        adapter.texts.add(0, "x");
+        rows.sync(formModel, adapter);
+
+        assertEquals(9, rows.get(0).getId());
+        assertEquals("22", rows.get(2).getValue().toString());
+    }
+
+    @Test
+    public void testGetFirstInvalidPosition() {
+        adapter.addRow(1, digits, "1");
+        adapter.addRow(2, digits, "2");
+        adapter.addRow(3, digits, "c");
+        adapter.addRow(4, digits, "d");
+        rows.sync(formModel, adapter);
+
+        assertEquals(2, rows.getFirstInvalidPosition());
+
+        formModel.setValue(3, "3");
+        formModel.setValue(4, "4");
+
+        assertEquals(EasyRecyclerForm.NO_POSITION, rows.getFirstInvalidPosition());
+    }
+
+    @Test
+    public void testShowErrors() {
+        adapter.addRow(1, digits, "1");
+        adapter.addRow(2, digits, "b");
+        rows.sync(formModel, adapter);
+
+        assertFalse(rows.get(1).errorVisible);
+
+        rows.showErrors();
+
+        assertFalse(rows.get(0).errorVisible);
+        assertTrue(rows.get(1).errorVisible);
+    }
+
+    private static class TestAdapter extends EasyRecyclerForm.Adapter<RecyclerView.ViewHolder> {
+
+        final List<Integer> ids = new ArrayList<>();
+        final List<ValidatorSpec> specs = new ArrayList<>();
+        final List<String> texts = new ArrayList<>();
+
+        void addRow(int id, ValidatorSpec spec, String text) {
+            ids.add(id);
+            specs.add(spec);
+            texts.add(text);
+        }
+
+        void moveRow(int from, int to) {
+            ids.add(to, ids.remove(from));
+            specs.add(to, specs.remove(from));
+            texts.add(to, texts.remove(from));
+        }
+
+        void removeRow(int position) {
+            ids.remove(position);
+            specs.remove(position);
+            texts.remove(position);
+        }
+
+        @Override
+        public int getFieldId(int position) {
+            return ids.get(position);
+        }
+
+        @Override
+        public ValidatorSpec getValidatorSpec(int position) {
+            return specs.get(position);
+        }
+
+        @Override
+        public CharSequence getText(int position) {
+            return texts.get(position);
+        }
+
+        @Override
+        public int getItemCount() {
+            return ids.size();
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return null;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+
+public class FormStateDispatcherTest {
+
+    private FormStateDispatcher dispatcher = new FormStateDispatcher();
+    private final List<FormState> states = new ArrayList<>();
+    private final FormStateListener listener = new FormStateListener() {
+        @Override
+        public void onFormStateChanged(FormState state) {
+            states.add(state);
+        }
+    };
+
+    @Test
+    public void testSetState_OnlyTransitions() {
+        dispatcher.addListener(listener);
+
+        dispatcher.setState(FormState.INVALID);
+        dispatcher.setState(FormState.INVALID);
+        dispatcher.setState(FormState.PENDING);
+        dispatcher.setState(FormState.VALID);
+        dispatcher.setState(FormState.VALID);
+        dispatcher.setState(FormState.INVALID);
+
+        assertEquals(Arrays.asList(FormState.INVALID, FormState.PENDING, FormState.VALID, FormState.INVALID), states);
+    }
+
+    @Test
+    public void testAddListener_ToldCurrentState() {
+        dispatcher.setState(FormState.VALID);
+        dispatcher.addListener(listener);
+
+        assertEquals(Arrays.asList(FormState.VALID), states);
+    }
+
+    @Test
+    public void testRemoveListener() {
+        dispatcher.addListener(listener);
+        dispatcher.removeListener(listener);
+        dispatcher.setState(FormState.VALID);
+
+        assertEquals(0, states.size());
+    }
+}
@@ -27,6 +27,7 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import static com.emmasuzuki.easyform.FormValidator.INVALID_VALUE;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
@@ -147,6 +148,30 @@ public class FormValidatorTest {
         assertFalse(formValidator.isValid("100.&1"));
     }
 
+    @Test
+    public void testAfterTextChanged_Value_PartialNumber() {
+        formValidator.setErrorType(ErrorType.VALUE);
+        assertFalse(formValidator.isValid("-"));
+    }
+
+    @Test
+    public void testAfterTextChanged_Value_DecimalPrecision() {
+        formValidator.setMinValue(0);
+        formValidator.setMaxValue(19.99f);
+        formValidator.setValuePrecision(ValuePrecision.DECIMAL);
+        assertTrue(formValidator.isValid("19.99"));
+        assertFalse(formValidator.isValid("19.991"));
+    }
+
+    @Test
+    public void testAfterTextChanged_Value_IntegerPrecision() {
+        formValidator.setMinValue(0);
+        formValidator.setMaxValue(100);
+        formValidator.setValuePrecision(ValuePrecision.INTEGER);
+        assertTrue(formValidator.isValid("42"));
+        assertFalse(formValidator.isValid("42.5"));
+    }
+
     @Test
     public void testAfterTextChanged_Chars_LessThanMin() {
         formValidator.setErrorType(ErrorType.CHARS);
@@ -178,4 +203,77 @@ public class FormValidatorTest {
         formValidator.setMaxChars(5);
         assertFalse(formValidator.isValid("abcdef"));
     }
+
+    @Test
+    public void testChain_EnforcesEveryRule() {
+        FormValidator validator = new FormValidator(null, "[a-z]+", INVALID_VALUE, INVALID_VALUE, 4, INVALID_VALUE);
+        assertTrue(validator.isValid("abcd"));
+        assertFalse(validator.isValid("abc"));
+        assertFalse(validator.isValid("abc1"));
+    }
+
+    @Test
+    public void testChain_ReportsMessageOfFailedRule() {
+        FormValidator validator = new FormValidator(null, "[a-z]+", INVALID_VALUE, INVALID_VALUE, 4, INVALID_VALUE);
+        validator.setErrorMessage(ErrorType.CHARS, "Too short");
+        validator.setErrorMessage(ErrorType.PATTERN, "Letters only");
+        assertFalse(validator.isValid("abc"));
+        assertEquals("Too short", validator.getErrorMessage());
+        assertFalse(validator.isValid("abcd1"));
+        assertEquals("Letters only", validator.getErrorMessage());
+    }
+
+    @Test
+    public void testChain_MessageDoesNotChangeWithReorder() {
+        when(TextUtils.isEmpty("")).thenReturn(true);
+        FormValidator validator = new FormValidator(ErrorType.EMPTY, "[a-z]+", INVALID_VALUE, INVALID_VALUE, INVALID_VALUE, INVALID_VALUE);
+        validator.setErrorMessage(ErrorType.EMPTY, "Required");
+        validator.setErrorMessage(ErrorType.PATTERN, "Letters only");
+        assertFalse(validator.isValid(""));
+        assertEquals("Required", validator.getErrorMessage());
+
+        // Only the pattern fails, so it is moved ahead of the empty check.
+        for (int i = 0; i < 128; i++) {
+            assertFalse(validator.isValid("1"));
+            assertEquals("Letters only", validator.getErrorMessage());
+        }
+        assertEquals(ErrorType.PATTERN, validator.getRules()[0].errorType);
+
+        assertFalse(validator.isValid(""));
+        assertEquals("Required", validator.getErrorMessage());
+        assertFalse(validator.isIncomplete());
+    }
+
+    @Test
+    public void testChain_RunsCheapRulesFirst() {
+        FormValidator validator = new FormValidator(null, "[a-z]+", INVALID_VALUE, INVALID_VALUE, 4, INVALID_VALUE);
+        assertEquals(ErrorType.CHARS, validator.getRules()[0].errorType);
+    }
+
+    @Test
+    public void testPatternCache_SharesCompiledPattern() {
+        FormValidator validator1 = new FormValidator(null, "[a-z]+@[a-z]+", INVALID_VALUE, INVALID_VALUE, INVALID_VALUE, INVALID_VALUE);
+        FormValidator validator2 = new FormValidator(null, null, INVALID_VALUE, INVALID_VALUE, INVALID_VALUE, INVALID_VALUE);
+        validator2.setRegexPattern("[a-z]+@[a-z]+");
+        assertSame(validator1.getPattern(), validator2.getPattern());
+    }
+
+    @Test
+    public void testPatternCache_CountsHitsAndMisses() {
+        PatternCache.clear();
+        PatternCache.get("[0-9]{3}");
+        PatternCache.get("[0-9]{3}");
+        PatternCache.get("[0-9]{4}");
+        assertEquals(1, PatternCache.getHitCount());
+        assertEquals(2, PatternCache.getMissCount());
+    }
+
+    @Test
+    public void testPatternCache_EvictsLeastRecentlyUsed() {
+        PatternCache.clear();
+        for (int i = 0; i <= PatternCache.MAX_SIZE; i++) {
+            PatternCache.get("[0-9]{" + i + "}");
+        }
+        assertEquals(PatternCache.MAX_SIZE, PatternCache.size());
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class FormatTemplateTest {
+
+    @Test
+    public void testConstructor_Slots() {
+        FormatTemplate template = new FormatTemplate("1", "# (###) ###-####");
+
+        assertEquals("1", template.leadingDigits);
+        assertEquals(16, template.length);
+        assertEquals(11, template.maxDigits);
+        assertTrue(template.isDigitSlot(0));
+        assertFalse(template.isDigitSlot(1));
+        assertEquals('(', template.literalAt(2));
+        assertTrue(template.isDigitSlot(15));
+    }
+
+    @Test
+    public void testConstructor_NoLeadingDigits() {
+        FormatTemplate template = new FormatTemplate("##-####-####");
+
+        assertEquals("", template.leadingDigits);
+        assertEquals(10, template.maxDigits);
+    }
+
+    @Test
+    public void testPeriod_EvenGroups() {
+        assertEquals(5, new FormatTemplate("#### #### #### #### ###").period);
+        assertEquals(3, new FormatTemplate("## ## ## ## ##").period);
+    }
+
+    @Test
+    public void testPeriod_UnevenGroups() {
+        assertEquals(0, new FormatTemplate("#### ###### #####").period);
+        assertEquals(0, new FormatTemplate("(###) ###-####").period);
+        assertEquals(0, new FormatTemplate("###-###-####").period);
+        assertEquals(0, new FormatTemplate("##########").period);
+    }
+}
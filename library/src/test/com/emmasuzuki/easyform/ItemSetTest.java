@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class ItemSetTest {
+
+    private static final List<String> CITIES = Arrays.asList("S\u00e3o Paulo", "New York", "Newark", "Z\u00fcrich");
+
+    @Test
+    public void testContains_Exact() {
+        ItemSet items = new ItemSet(CITIES, ItemMatching.EXACT);
+
+        assertTrue(items.contains("New York"));
+        assertFalse(items.contains("new york"));
+        assertFalse(items.contains("New Yor"));
+        assertFalse(items.contains(""));
+    }
+
+    @Test
+    public void testContains_IgnoreCase() {
+        ItemSet items = new ItemSet(CITIES, ItemMatching.IGNORE_CASE);
+
+        assertTrue(items.contains("NEW YORK"));
+        assertTrue(items.contains("z\u00dcrich"));
+        assertFalse(items.contains("Zurich"));
+        assertFalse(items.contains("new  york"));
+    }
+
+    @Test
+    public void testContains_Normalized() {
+        ItemSet items = new ItemSet(CITIES, ItemMatching.NORMALIZED);
+
+        assertTrue(items.contains("  sao   PAULO "));
+        assertTrue(items.contains("zurich"));
+        assertTrue(items.contains("New\tYork"));
+        assertFalse(items.contains("NewYork"));
+    }
+
+    @Test
+    public void testContains_ManyItems() {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            list.add("item " + i);
+        }
+        ItemSet items = new ItemSet(list, ItemMatching.EXACT);
+
+        assertEquals(100000, items.size());
+        for (int i = 0; i < 100000; i += 997) {
+            assertTrue(items.contains("item " + i));
+        }
+        assertFalse(items.contains("item 100000"));
+    }
+
+    @Test
+    public void testIsValid_PrefixIsIncomplete() {
+        Rule.Item rule = new Rule.Item(new ItemSet(CITIES, ItemMatching.IGNORE_CASE));
+        Rule.Scratch scratch = new Rule.Scratch();
+
+        assertFalse(rule.isValid("new", scratch));
+        assertTrue(scratch.incomplete);
+
+        scratch.incomplete = false;
+        assertFalse(rule.isValid("new jersey", scratch));
+        assertFalse(scratch.incomplete);
+
+        assertTrue(rule.isValid("Newark", scratch));
+    }
+
+    @Test
+    public void testEquals_SameFoldedItems() {
+        ItemSet items = new ItemSet(Arrays.asList("a", "B"), ItemMatching.IGNORE_CASE);
+
+        assertEquals(items, new ItemSet(Arrays.asList("b", "A", "a"), ItemMatching.IGNORE_CASE));
+        assertEquals(items.hashCode(), new ItemSet(Arrays.asList("b", "A"), ItemMatching.IGNORE_CASE).hashCode());
+        assertFalse(items.equals(new ItemSet(Arrays.asList("a", "B"), ItemMatching.EXACT)));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class NumberParserTest {
+
+    private NumberParser usParser = new NumberParser(Locale.US);
+    private NumberParser germanParser = new NumberParser(Locale.GERMANY);
+    private NumberParser.Decimal decimal = new NumberParser.Decimal();
+
+    @Test
+    public void testParse_PartialInput() {
+        assertFalse(usParser.parse("", decimal, true));
+        assertFalse(usParser.parse("-", decimal, true));
+        assertFalse(usParser.parse(".", decimal, true));
+        assertFalse(usParser.parse("1e", decimal, true));
+        assertFalse(usParser.parse("1,", decimal, true));
+        assertFalse(usParser.parse("100.&1", decimal, true));
+    }
+
+    @Test
+    public void testParse_TrailingSeparator() {
+        assertTrue(usParser.parse("1.", decimal, true));
+        assertEquals(1L, decimal.unscaled);
+        assertTrue(decimal.hasFraction);
+    }
+
+    @Test
+    public void testParse_Decimal() {
+        assertTrue(usParser.parse("-1,234.50", decimal, false));
+        assertTrue(decimal.negative);
+        assertEquals(123450L, decimal.unscaled);
+        assertEquals(2, decimal.scale);
+    }
+
+    @Test
+    public void testParse_GroupsOfThousands() {
+        assertTrue(usParser.parse("1,234.5", decimal, false));
+        assertEquals(12345L, decimal.unscaled);
+        assertEquals(1, decimal.scale);
+        assertTrue(usParser.parse("12,345,678", decimal, false));
+        assertEquals(12345678L, decimal.unscaled);
+    }
+
+    @Test
+    public void testParse_MisplacedGrouping() {
+        assertFalse(usParser.parse("1,5", decimal, false));
+        assertFalse(usParser.parse("1,2,3", decimal, false));
+        assertFalse(usParser.parse("12,34", decimal, false));
+        assertFalse(usParser.parse("1,2345", decimal, false));
+        assertFalse(usParser.parse("1234,567", decimal, false));
+        assertFalse(usParser.parse("1,23.5", decimal, false));
+        assertFalse(usParser.parse("1,23e3", decimal, true));
+        assertFalse(usParser.parse("1,,234", decimal, false));
+        assertFalse(usParser.parse(",123", decimal, false));
+        assertFalse(germanParser.parse("1.5", decimal, false));
+    }
+
+    @Test
+    public void testParse_LocaleSeparators() {
+        assertTrue(germanParser.parse("1.234,5", decimal, false));
+        assertEquals(12345L, decimal.unscaled);
+        assertEquals(1, decimal.scale);
+    }
+
+    @Test
+    public void testParse_ExponentOnlyWhenAllowed() {
+        assertTrue(usParser.parse("1.5e3", decimal, true));
+        assertEquals(1500d, decimal.toDouble());
+        assertFalse(usParser.parse("1.5e3", decimal, false));
+    }
+
+    @Test
+    public void testParse_BeyondLongPrecision() {
+        assertTrue(usParser.parse("123456789012345678901234", decimal, true));
+        assertEquals(1.23456789012345678901234e23, decimal.toDouble(), 1e9);
+    }
+
+    @Test
+    public void testCompare_ExactDecimal() {
+        NumberParser.Decimal max = new NumberParser.Decimal();
+        max.set(19.99);
+
+        usParser.parse("19.99", decimal, false);
+        assertEquals(0, NumberParser.compare(decimal, max));
+
+        usParser.parse("19.990000001", decimal, false);
+        assertEquals(1, NumberParser.compare(decimal, max));
+
+        usParser.parse("-20", decimal, false);
+        assertEquals(-1, NumberParser.compare(decimal, max));
+    }
+
+    @Test
+    public void testCompare_FloatMaxBound() {
+        NumberParser.Decimal max = new NumberParser.Decimal();
+        max.set(Float.MAX_VALUE);
+
+        usParser.parse("99999999999999999999", decimal, false);
+        assertEquals(-1, NumberParser.compare(decimal, max));
+    }
+}
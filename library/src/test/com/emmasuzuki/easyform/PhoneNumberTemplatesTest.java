@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+public class PhoneNumberTemplatesTest {
+
+    @Test
+    public void testForRegion() {
+        assertSame(PhoneNumberTemplates.forRegion("US"), PhoneNumberTemplates.forRegion("CA"));
+        assertSame(PhoneNumberTemplates.forRegion("JP"), PhoneNumberTemplates.forRegion("jp"));
+        assertNull(PhoneNumberTemplates.forRegion("ZZ"));
+    }
+
+    @Test
+    public void testForRegion_DefaultLocale() {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            assertSame(PhoneNumberTemplates.forRegion("DE"), PhoneNumberTemplates.forRegion(null));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testSelect_NoLeadingDigits() {
+        FormatTemplate[] us = PhoneNumberTemplates.forRegion("US");
+
+        assertEquals("(###) ###-####", PhoneNumberTemplates.select(us, "").pattern);
+        assertEquals("(###) ###-####", PhoneNumberTemplates.select(us, "415").pattern);
+        assertEquals("# (###) ###-####", PhoneNumberTemplates.select(us, "1415").pattern);
+    }
+
+    @Test
+    public void testSelect_LongestPrefixWins() {
+        FormatTemplate[] jp = PhoneNumberTemplates.forRegion("JP");
+
+        assertEquals("###-###-####", PhoneNumberTemplates.select(jp, "0").pattern);
+        assertEquals("###-###-####", PhoneNumberTemplates.select(jp, "09").pattern);
+        assertEquals("###-####-####", PhoneNumberTemplates.select(jp, "090").pattern);
+        assertEquals("##-####-####", PhoneNumberTemplates.select(jp, "03").pattern);
+        assertEquals("###-###-####", PhoneNumberTemplates.select(jp, "045").pattern);
+    }
+
+    @Test
+    public void testSelect_SkipsLiterals() {
+        FormatTemplate[] gb = PhoneNumberTemplates.forRegion("GB");
+
+        assertEquals("### #### ####", PhoneNumberTemplates.select(gb, "0 2").pattern);
+        assertEquals("##### ######", PhoneNumberTemplates.select(gb, "01-2").pattern);
+    }
+}
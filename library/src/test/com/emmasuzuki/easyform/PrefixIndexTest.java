@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+
+public class PrefixIndexTest {
+
+    private static final List<String> CITIES = Arrays.asList("New York", "York", "Newark", "Saint-Denis", "Denver", "New New Town", "Tokyo");
+
+    @Test
+    public void testQuery_WordStarts() {
+        PrefixIndex index = new PrefixIndex(CITIES, true);
+
+        assertEquals(Arrays.asList("New York", "York"), index.query("yor"));
+        assertEquals(Arrays.asList("Saint-Denis", "Denver"), index.query("DEN"));
+        assertEquals(Arrays.asList("New York", "New New Town"), index.query("new "));
+        assertEquals(Collections.emptyList(), index.query("ork"));
+    }
+
+    @Test
+    public void testQuery_ItemStartsOnly() {
+        PrefixIndex index = new PrefixIndex(CITIES, false);
+
+        assertEquals(Arrays.asList("New York", "Newark", "New New Town"), index.query("new"));
+        assertEquals(Arrays.asList("York"), index.query("york"));
+        assertEquals(CITIES, index.query(""));
+    }
+
+    @Test
+    public void testQuery_SameAsScan() {
+        String[] words = {"an", "ber", "an-na", "Ro", "rom", "a"};
+        List<String> items = new ArrayList<>();
+        for (String first : words) {
+            for (String second : words) {
+                items.add(first + " " + second);
+            }
+        }
+        PrefixIndex index = new PrefixIndex(items, true);
+
+        for (String prefix : new String[] {"a", "an", "an ", "ann", "r", "ROM", "b", "z", "a a"}) {
+            List<String> expected = new ArrayList<>();
+            for (String item : items) {
+                String key = item.toLowerCase();
+                for (int i = 0; i < key.length(); i++) {
+                    boolean wordStart = i == 0 || !Character.isLetterOrDigit(key.charAt(i - 1));
+                    if (wordStart && key.startsWith(prefix.toLowerCase(), i)) {
+                        expected.add(item);
+                        break;
+                    }
+                }
+            }
+
+            assertEquals(prefix, expected, index.query(prefix));
+        }
+    }
+}
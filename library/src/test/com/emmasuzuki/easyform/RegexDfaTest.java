@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class RegexDfaTest {
+
+    private static final String EMAIL_PATTERN = "[\\w.-]+@[\\w-]+(\\.[\\w-]+)+";
+
+    private Rule.Scratch scratch = new Rule.Scratch();
+
+    @Test
+    public void testForPattern_Unsupported() {
+        assertNull(RegexDfa.forPattern(Pattern.compile("\\bword")));
+        assertNull(RegexDfa.forPattern(Pattern.compile("(a)\\1")));
+        assertNull(RegexDfa.forPattern(Pattern.compile("a*+")));
+        assertNull(RegexDfa.forPattern(Pattern.compile("abc", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test
+    public void testMatches_SameAsRegex() {
+        String[] patterns = {"[0-9]+", "^\\d{3}-\\d{4}$", "(ab|a)*b?", "colou?r", "[^abc]*x", "\\(\\d{3}\\) ?\\d{3}-\\d{4}"};
+        String[] inputs = {"", "123", "555-1234", "abab", "aab", "color", "colour", "zzx", "abx", "(555) 123-4567", "(555)123-456"};
+
+        for (String regexPattern : patterns) {
+            Pattern pattern = Pattern.compile(regexPattern);
+            Rule.Regex rule = new Rule.Regex(pattern);
+            assertNotNull(rule.dfa);
+
+            for (String input : inputs) {
+                assertEquals(regexPattern + " " + input, pattern.matcher(input).matches(), rule.isValid(input, new Rule.Scratch()));
+            }
+        }
+    }
+
+    @Test
+    public void testMatches_BoundedRepeatPastArrayGrowth() {
+        // Sizes chosen so the split state of the optional part is added as the NFA arrays grow.
+        String[] patterns = {"a{29}b?", "\\d{61}x?", "(ab){20,40}c*", "a{5,70}"};
+
+        for (String regexPattern : patterns) {
+            Pattern pattern = Pattern.compile(regexPattern);
+            Rule.Regex rule = new Rule.Regex(pattern);
+            assertNotNull(regexPattern, rule.dfa);
+
+            for (String input : repeatInputs()) {
+                assertEquals(regexPattern + " " + input, pattern.matcher(input).matches(), rule.isValid(input, new Rule.Scratch()));
+            }
+        }
+    }
+
+    @Test
+    public void testMatches_RandomPatternsSameAsRegex() {
+        Random random = new Random(10);
+        int checked = 0;
+
+        for (int i = 0; i < 500; i++) {
+            String regexPattern = randomPattern(random, 3);
+            Pattern pattern = Pattern.compile(regexPattern);
+            Rule.Regex rule = new Rule.Regex(pattern);
+            if (rule.dfa == null) {
+                continue;
+            }
+
+            for (int j = 0; j < 40; j++) {
+                StringBuilder input = new StringBuilder();
+                int length = random.nextInt(12);
+                for (int k = 0; k < length; k++) {
+                    input.append("ab1".charAt(random.nextInt(3)));
+                }
+
+                assertEquals(regexPattern + " " + input, pattern.matcher(input).matches(), rule.isValid(input, new Rule.Scratch()));
+                checked++;
+            }
+        }
+
+        assertTrue(checked > 0);
+    }
+
+    @Test
+    public void testIsValid_ResumesFromEdit() {
+        Rule.Regex rule = new Rule.Regex(Pattern.compile(EMAIL_PATTERN));
+        StringBuilder text = new StringBuilder("name@example");
+
+        assertFalse(rule.isValid(text, scratch));
+        assertTrue(scratch.incomplete);
+
+        text.append(".com");
+        scratch.edited(12, 0);
+        assertTrue(rule.isValid(text, scratch));
+
+        text.setCharAt(4, '!');
+        scratch.edited(4, 0);
+        assertFalse(rule.isValid(text, scratch));
+        assertFalse(scratch.incomplete);
+    }
+
+    @Test
+    public void testIsValid_EditInMiddle() {
+        Rule.Regex rule = new Rule.Regex(Pattern.compile(EMAIL_PATTERN));
+        StringBuilder text = new StringBuilder("first.last@mail.example.com");
+        assertTrue(rule.isValid(text, scratch));
+
+        text.replace(0, 5, "given");
+        scratch.edited(0, text.length() - 5);
+        assertTrue(rule.isValid(text, scratch));
+
+        text.insert(10, "@");
+        scratch.edited(10, text.length() - 11);
+        assertFalse(rule.isValid(text, scratch));
+
+        text.deleteCharAt(10);
+        scratch.edited(10, text.length() - 10);
+        assertTrue(rule.isValid(text, scratch));
+    }
+
+    @Test
+    public void testIsValid_RandomEditsSameAsFullRun() {
+        Pattern pattern = Pattern.compile(EMAIL_PATTERN);
+        Rule.Regex rule = new Rule.Regex(pattern);
+        Random random = new Random(42);
+        String chars = "ab.@-_";
+        StringBuilder text = new StringBuilder();
+
+        for (int edit = 0; edit < 2000; edit++) {
+            int start = random.nextInt(text.length() + 1);
+            int end = Math.min(text.length(), start + random.nextInt(3));
+            int count = random.nextInt(3);
+            StringBuilder inserted = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                inserted.append(chars.charAt(random.nextInt(chars.length())));
+            }
+
+            text.replace(start, end, inserted.toString());
+            scratch.edited(start, text.length() - start - count);
+
+            boolean isValid = rule.isValid(text, scratch);
+            boolean incomplete = scratch.incomplete;
+            assertEquals(text.toString(), pattern.matcher(text).matches(), isValid);
+            assertEquals(text.toString(), incomplete, fullRunIncomplete(rule, text));
+        }
+    }
+
+    @Test
+    public void testIsValid_FallbackReportsIncomplete() {
+        Rule.Regex rule = new Rule.Regex(Pattern.compile("\\d{3}\\b"));
+        assertNull(rule.dfa);
+
+        assertFalse(rule.isValid("12", scratch));
+        assertTrue(scratch.incomplete);
+    }
+
+    private static boolean fullRunIncomplete(Rule rule, CharSequence text) {
+        Rule.Scratch fresh = new Rule.Scratch();
+        rule.isValid(text, fresh);
+        return fresh.incomplete;
+    }
+
+    private static String[] repeatInputs() {
+        List<String> inputs = new ArrayList<>();
+        String[] units = {"a", "ab", "1"};
+        for (String unit : units) {
+            StringBuilder repeated = new StringBuilder();
+            for (int count = 0; count <= 75; count++) {
+                inputs.add(repeated.toString());
+                inputs.add(repeated + "b");
+                inputs.add(repeated + "x");
+                inputs.add(repeated + "c");
+                repeated.append(unit);
+            }
+        }
+
+        return inputs.toArray(new String[inputs.size()]);
+    }
+
+    private static String randomPattern(Random random, int depth) {
+        int kind = depth == 0 ? random.nextInt(3) : random.nextInt(7);
+
+        switch (kind) {
+            case 0:
+                return String.valueOf("ab1".charAt(random.nextInt(3)));
+            case 1:
+                return random.nextBoolean() ? "[ab]" : "\\d";
+            case 2:
+                return ".";
+            case 3:
+                return randomPattern(random, depth - 1) + randomPattern(random, depth - 1);
+            case 4:
+                return "(" + randomPattern(random, depth - 1) + "|" + randomPattern(random, depth - 1) + ")";
+            case 5: {
+                String[] quantifiers = {"*", "+", "?"};
+                return "(" + randomPattern(random, depth - 1) + ")" + quantifiers[random.nextInt(quantifiers.length)];
+            }
+            default: {
+                // Now and then a long repeat, to build NFAs past the arrays' initial size.
+                int min = random.nextInt(8) == 0 ? 20 + random.nextInt(30) : random.nextInt(4);
+                int max = min + random.nextInt(4);
+                return "(" + randomPattern(random, depth - 1) + "){" + min + "," + max + "}";
+            }
+        }
+    }
+}
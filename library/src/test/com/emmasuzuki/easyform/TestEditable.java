@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import android.text.Editable;
+import android.text.InputFilter;
+
+import java.lang.reflect.Array;
+
+/**
+ * Minimal span-free Editable, as SpannableStringBuilder does nothing in local unit tests.
+ */
+final class TestEditable implements Editable {
+
+    private static final InputFilter[] NO_FILTERS = new InputFilter[0];
+
+    private final StringBuilder text = new StringBuilder();
+    private InputFilter[] filters = NO_FILTERS;
+
+    @Override
+    public Editable replace(int st, int en, CharSequence source, int start, int end) {
+        text.delete(st, en);
+        text.insert(st, source, start, end);
+        return this;
+    }
+
+    @Override
+    public Editable replace(int st, int en, CharSequence text) {
+        return replace(st, en, text, 0, text.length());
+    }
+
+    @Override
+    public Editable insert(int where, CharSequence text, int start, int end) {
+        return replace(where, where, text, start, end);
+    }
+
+    @Override
+    public Editable insert(int where, CharSequence text) {
+        return replace(where, where, text, 0, text.length());
+    }
+
+    @Override
+    public Editable delete(int st, int en) {
+        text.delete(st, en);
+        return this;
+    }
+
+    @Override
+    public Editable append(CharSequence text) {
+        this.text.append(text);
+        return this;
+    }
+
+    @Override
+    public Editable append(CharSequence text, int start, int end) {
+        this.text.append(text, start, end);
+        return this;
+    }
+
+    @Override
+    public Editable append(char c) {
+        text.append(c);
+        return this;
+    }
+
+    @Override
+    public void clear() {
+        text.setLength(0);
+    }
+
+    @Override
+    public void clearSpans() {
+    }
+
+    @Override
+    public void setFilters(InputFilter[] filters) {
+        this.filters = filters;
+    }
+
+    @Override
+    public InputFilter[] getFilters() {
+        return filters;
+    }
+
+    @Override
+    public void getChars(int start, int end, char[] dest, int destoff) {
+        text.getChars(start, end, dest, destoff);
+    }
+
+    @Override
+    public void setSpan(Object what, int start, int end, int flags) {
+    }
+
+    @Override
+    public void removeSpan(Object what) {
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] getSpans(int start, int end, Class<T> type) {
+        return (T[]) Array.newInstance(type, 0);
+    }
+
+    @Override
+    public int getSpanStart(Object tag) {
+        return -1;
+    }
+
+    @Override
+    public int getSpanEnd(Object tag) {
+        return -1;
+    }
+
+    @Override
+    public int getSpanFlags(Object tag) {
+        return 0;
+    }
+
+    @Override
+    public int nextSpanTransition(int start, int limit, Class type) {
+        return limit;
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return text.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
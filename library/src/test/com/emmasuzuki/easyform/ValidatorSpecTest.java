@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Emma Suzuki <emma11suzuki@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.emmasuzuki.easyform;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class ValidatorSpecTest {
+
+    @Test
+    public void testBuild_InternsEqualSpecs() {
+        ValidatorSpec spec = new ValidatorSpec.Builder().setMaxChars(50).setErrorMessage("Too long").build();
+        ValidatorSpec same = new ValidatorSpec.Builder().setMaxChars(50).setErrorMessage("Too long").build();
+        ValidatorSpec other = new ValidatorSpec.Builder().setMaxChars(50).setErrorMessage("Error").build();
+
+        assertSame(spec, same);
+        assertNotSame(spec, other);
+        assertFalse(spec.equals(other));
+    }
+
+    @Test
+    public void testBuilderFromSpec_LeavesSpecUnchanged() {
+        ValidatorSpec spec = new ValidatorSpec.Builder().setMinChars(2).setErrorMessage("Too short").build();
+        ValidatorSpec derived = new ValidatorSpec.Builder(spec).setMaxChars(4).build();
+
+        assertTrue(spec.newValidator().isValid("12345"));
+        assertFalse(derived.newValidator().isValid("12345"));
+        assertTrue(derived.newValidator().isValid("123"));
+        assertEquals("Too short", derived.getErrorMessage());
+        assertSame(spec, new ValidatorSpec.Builder(derived).setMaxChars(FormValidator.INVALID_VALUE).build());
+    }
+
+    @Test
+    public void testSetOnlyErrorType_DropsOtherRules() {
+        ValidatorSpec spec = new ValidatorSpec.Builder().setRegexPattern("[0-9]+").setMinChars(3).build();
+        ValidatorSpec chars = new ValidatorSpec.Builder(spec).setOnlyErrorType(ErrorType.CHARS).build();
+
+        assertFalse(spec.newValidator().isValid("abc"));
+        assertTrue(chars.newValidator().isValid("abc"));
+        assertFalse(chars.newValidator().isValid("ab"));
+    }
+}